@@ -1,5 +1,6 @@
 package fr.kitsuapirest.ApiResponse;
 
+import java.time.Instant;
 import java.time.LocalDate;
 
 public class AnimeAttributes {
@@ -17,6 +18,7 @@ public class AnimeAttributes {
     private ImageObject posterImage;
     private String subtype;
     private String ageRatingGuide;
+    private Instant updatedAt;
 
 
     public Titles getTitles() {
@@ -122,4 +124,12 @@ public class AnimeAttributes {
     public void setAgeRatingGuide(String ageRatingGuide) {
         this.ageRatingGuide = ageRatingGuide;
     }
-}
\ No newline at end of file
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,182 @@
+package fr.kitsuapirest.config;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import fr.kitsuapirest.ApiResponse.AnimeAttributes;
+import fr.kitsuapirest.ApiResponse.AnimeData;
+import fr.kitsuapirest.ApiResponse.ApiResponse;
+import fr.kitsuapirest.ApiResponse.ImageObject;
+import fr.kitsuapirest.ApiResponse.Titles;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The KitsuResponseConverter class reads the Kitsu JSON:API responses with a streaming parser.
+ * Only the fields of the ApiResponse classes are read: the relationships, links, meta and included resources,
+ * as well as the unknown attributes, are skipped without being bound to any object.
+ */
+public class KitsuResponseConverter extends AbstractHttpMessageConverter<ApiResponse> {
+
+    private static final Set<String> OBJECT_ATTRIBUTES = Set.of("titles", "posterImage", "coverImage");
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    public KitsuResponseConverter() {
+        super(MediaType.parseMediaType("application/vnd.api+json"), MediaType.APPLICATION_JSON);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return ApiResponse.class == clazz;
+    }
+
+    @Override
+    protected boolean canWrite(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected ApiResponse readInternal(Class<? extends ApiResponse> clazz, HttpInputMessage inputMessage) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(inputMessage.getBody())) {
+            return read(parser);
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new HttpMessageNotReadableException("Invalid Kitsu response: " + e.getMessage(), e, inputMessage);
+        }
+    }
+
+    @Override
+    protected void writeInternal(ApiResponse apiResponse, HttpOutputMessage outputMessage) throws HttpMessageNotWritableException {
+        throw new HttpMessageNotWritableException("Kitsu responses are read only");
+    }
+
+    /**
+     * Reads a Kitsu response.
+     * A single resource is read as a list of one anime, like a collection.
+     *
+     * @param parser the parser, positioned before the response.
+     * @return the response, with only its data.
+     * @throws IOException if the response is not valid JSON.
+     */
+    private static ApiResponse read(JsonParser parser) throws IOException {
+        ApiResponse apiResponse = new ApiResponse();
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return apiResponse;
+        }
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("data".equals(name) && value == JsonToken.START_ARRAY) {
+                List<AnimeData> data = new ArrayList<>();
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    data.add(readAnime(parser));
+                }
+                apiResponse.setData(data);
+            } else if ("data".equals(name) && value == JsonToken.START_OBJECT) {
+                List<AnimeData> data = new ArrayList<>(1);
+                data.add(readAnime(parser));
+                apiResponse.setData(data);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return apiResponse;
+    }
+
+    private static AnimeData readAnime(JsonParser parser) throws IOException {
+        AnimeData animeData = new AnimeData();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (name) {
+                case "id" -> animeData.setId(parser.getValueAsString());
+                case "type" -> animeData.setType(parser.getValueAsString());
+                case "attributes" -> {
+                    if (value == JsonToken.START_OBJECT) {
+                        animeData.setAttributes(readAttributes(parser));
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        return animeData;
+    }
+
+    private static AnimeAttributes readAttributes(JsonParser parser) throws IOException {
+        AnimeAttributes attributes = new AnimeAttributes();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (value == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            if (value == JsonToken.START_OBJECT && !OBJECT_ATTRIBUTES.contains(name)
+                    || value != JsonToken.START_OBJECT && OBJECT_ATTRIBUTES.contains(name)) {
+                parser.skipChildren();
+                continue;
+            }
+            switch (name) {
+                case "titles" -> attributes.setTitles(readTitles(parser));
+                case "synopsis" -> attributes.setSynopsis(parser.getValueAsString());
+                case "status" -> attributes.setStatus(parser.getValueAsString());
+                case "subtype" -> attributes.setSubtype(parser.getValueAsString());
+                case "ageRatingGuide" -> attributes.setAgeRatingGuide(parser.getValueAsString());
+                case "episodeCount" -> attributes.setEpisodeCount(parser.getValueAsInt());
+                case "episodeLength" -> attributes.setEpisodeLength(parser.getValueAsInt());
+                // Kitsu sends the average rating as a string, such as "82.5"
+                case "averageRating" -> attributes.setAverageRating(Double.valueOf(parser.getValueAsString()));
+                case "startDate" -> attributes.setStartDate(LocalDate.parse(parser.getValueAsString()));
+                case "endDate" -> attributes.setEndDate(LocalDate.parse(parser.getValueAsString()));
+                case "updatedAt" -> attributes.setUpdatedAt(Instant.parse(parser.getValueAsString()));
+                case "posterImage" -> attributes.setPosterImage(readImage(parser));
+                case "coverImage" -> attributes.setCoverImage(readImage(parser));
+                default -> parser.skipChildren();
+            }
+        }
+        return attributes;
+    }
+
+    private static Titles readTitles(JsonParser parser) throws IOException {
+        Titles titles = new Titles();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            switch (name) {
+                case "en" -> titles.setEn(parser.getValueAsString());
+                case "en_jp" -> titles.setEn_jp(parser.getValueAsString());
+                case "ja_jp" -> titles.setJa_jp(parser.getValueAsString());
+                default -> parser.skipChildren();
+            }
+        }
+        return titles;
+    }
+
+    private static ImageObject readImage(JsonParser parser) throws IOException {
+        ImageObject image = new ImageObject();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            switch (name) {
+                case "tiny" -> image.setTiny(parser.getValueAsString());
+                case "small" -> image.setSmall(parser.getValueAsString());
+                case "large" -> image.setLarge(parser.getValueAsString());
+                case "original" -> image.setOriginal(parser.getValueAsString());
+                default -> parser.skipChildren();
+            }
+        }
+        return image;
+    }
+}
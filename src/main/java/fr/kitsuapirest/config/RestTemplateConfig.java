@@ -1,18 +1,44 @@
 package fr.kitsuapirest.config;
 
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.ManagedHttpClientConnectionFactory;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.io.ConnectionEndpoint;
+import org.apache.hc.client5.http.io.LeaseRequest;
+import org.apache.hc.client5.http.io.ManagedHttpClientConnection;
+import org.apache.hc.client5.http.socket.ConnectionSocketFactory;
+import org.apache.hc.client5.http.socket.PlainConnectionSocketFactory;
+import org.apache.hc.client5.http.ssl.SSLConnectionSocketFactory;
+import org.apache.hc.core5.http.config.RegistryBuilder;
+import org.apache.hc.core5.http.io.HttpConnectionFactory;
+import org.apache.hc.core5.pool.PoolConcurrencyPolicy;
+import org.apache.hc.core5.pool.PoolReusePolicy;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
-import org.springframework.http.MediaType;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
-import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 
-import java.util.Collections;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * The RestTemplateConfig class provides the configuration for RestTemplate.
+ * Requests go through a pool of keep-alive connections, so that the Kitsu calls reuse their connections
+ * and TLS sessions instead of opening a new connection for each call. Responses are requested and decoded with gzip.
+ * The Kitsu responses are read by a streaming converter, which only keeps the fields the application uses.
  */
 @Component
 public class RestTemplateConfig {
@@ -20,36 +46,122 @@ public class RestTemplateConfig {
     /**
      * Creates and configures a RestTemplate bean.
      *
+     * @param httpClient the pooled HTTP client.
      * @return the configured RestTemplate.
      */
     @Bean
-    public RestTemplate restTemplate() {
-        RestTemplate restTemplate = new RestTemplate(clientHttpRequestFactory());
+    public RestTemplate restTemplate(CloseableHttpClient httpClient) {
+        RestTemplate restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
 
-        // Configure the message converter
-        MappingJackson2HttpMessageConverter converter = new MappingJackson2HttpMessageConverter();
-        converter.setSupportedMediaTypes(Collections.singletonList(MediaType.parseMediaType("application/vnd.api+json")));
+        // Read the Kitsu responses with the streaming converter, before the generic JSON converter
+        restTemplate.getMessageConverters().add(0, new KitsuResponseConverter());
 
-        ObjectMapper objectMapper = new ObjectMapper();
-        objectMapper.configure(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY, true);
-
-        converter.setObjectMapper(objectMapper);
+        return restTemplate;
+    }
 
-        restTemplate.getMessageConverters().add(converter);
+    /**
+     * Creates the HTTP client used by the RestTemplate.
+     * Content compression is enabled by default: requests accept gzip and responses are decoded transparently.
+     *
+     * @param connectionManager the connection pool.
+     * @param keepAlive         how long an idle connection is kept open.
+     * @param leaseTimeout      how long a request waits for a pooled connection.
+     * @return the configured HTTP client.
+     */
+    @Bean
+    public CloseableHttpClient httpClient(PoolingHttpClientConnectionManager connectionManager,
+                                          @Value("${kodo.http.keep-alive:PT30S}") Duration keepAlive,
+                                          @Value("${kodo.http.lease-timeout:PT2S}") Duration leaseTimeout) {
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.of(leaseTimeout))
+                .build();
 
-        return restTemplate;
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy((response, context) -> TimeValue.of(keepAlive))
+                .evictIdleConnections(TimeValue.of(keepAlive))
+                .evictExpiredConnections()
+                .build();
     }
 
     /**
-     * Creates a SimpleClientHttpRequestFactory bean with custom timeouts.
+     * Creates the connection pool of the HTTP client, with custom limits and timeouts.
+     * The pool usage, the time spent waiting for a connection and the number of opened connections are published as metrics.
      *
-     * @return the configured SimpleClientHttpRequestFactory.
+     * @param meterRegistry          the registry of the metrics.
+     * @param maxConnections         the maximum number of connections.
+     * @param maxConnectionsPerRoute the maximum number of connections to a single host.
+     * @param connectTimeout         the connect timeout.
+     * @param readTimeout            the read timeout.
+     * @return the configured connection pool.
+     */
+    @Bean
+    public PoolingHttpClientConnectionManager httpClientConnectionManager(MeterRegistry meterRegistry,
+                                                                          @Value("${kodo.http.max-connections:50}") int maxConnections,
+                                                                          @Value("${kodo.http.max-connections-per-route:20}") int maxConnectionsPerRoute,
+                                                                          @Value("${kodo.http.connect-timeout:PT5S}") Duration connectTimeout,
+                                                                          @Value("${kodo.http.read-timeout:PT5S}") Duration readTimeout) {
+        Counter openedConnections = Counter.builder("kodo.http.client.connections.opened")
+                .description("Connections opened by the HTTP client")
+                .register(meterRegistry);
+        Timer leaseTimer = Timer.builder("kodo.http.client.lease")
+                .description("Time spent waiting for a pooled connection")
+                .register(meterRegistry);
+
+        HttpConnectionFactory<ManagedHttpClientConnection> connectionFactory = socket -> {
+            openedConnections.increment();
+            return ManagedHttpClientConnectionFactory.INSTANCE.createConnection(socket);
+        };
+
+        MeteredConnectionManager connectionManager = new MeteredConnectionManager(connectionFactory, leaseTimer);
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+        connectionManager.setDefaultConnectionConfig(ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.of(connectTimeout))
+                .setSocketTimeout(Timeout.of(readTimeout))
+                .build());
+
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "kitsu").bindTo(meterRegistry);
+        return connectionManager;
+    }
+
+    /**
+     * The MeteredConnectionManager class records the time requests spend waiting for a pooled connection.
      */
-    private SimpleClientHttpRequestFactory clientHttpRequestFactory() {
-        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
-        factory.setReadTimeout(5000);
-        factory.setConnectTimeout(5000);
-        return factory;
+    private static final class MeteredConnectionManager extends PoolingHttpClientConnectionManager {
+
+        private final Timer leaseTimer;
+
+        private MeteredConnectionManager(HttpConnectionFactory<ManagedHttpClientConnection> connectionFactory, Timer leaseTimer) {
+            super(RegistryBuilder.<ConnectionSocketFactory>create()
+                            .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                            .register("https", SSLConnectionSocketFactory.getSocketFactory())
+                            .build(),
+                    PoolConcurrencyPolicy.STRICT, PoolReusePolicy.LIFO, TimeValue.NEG_ONE_MILLISECOND, connectionFactory);
+            this.leaseTimer = leaseTimer;
+        }
+
+        @Override
+        public LeaseRequest lease(String id, HttpRoute route, Timeout requestTimeout, Object state) {
+            LeaseRequest leaseRequest = super.lease(id, route, requestTimeout, state);
+            long start = System.nanoTime();
+            return new LeaseRequest() {
+                @Override
+                public ConnectionEndpoint get(Timeout timeout) throws InterruptedException, ExecutionException, TimeoutException {
+                    try {
+                        return leaseRequest.get(timeout);
+                    } finally {
+                        leaseTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    }
+                }
+
+                @Override
+                public boolean cancel() {
+                    return leaseRequest.cancel();
+                }
+            };
+        }
     }
 
 }
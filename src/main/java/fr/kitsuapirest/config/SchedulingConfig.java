@@ -0,0 +1,12 @@
+package fr.kitsuapirest.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * The SchedulingConfig class enables the scheduled tasks of the application.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
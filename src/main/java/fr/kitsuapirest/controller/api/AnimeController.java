@@ -1,13 +1,26 @@
 package fr.kitsuapirest.controller.api;
 
 import fr.kitsuapirest.ApiResponse.AnimeData;
+import fr.kitsuapirest.dto.AnimeFacets;
+import fr.kitsuapirest.dto.AnimeSuggestion;
+import fr.kitsuapirest.dto.KeysetPage;
 import fr.kitsuapirest.model.Anime;
+import fr.kitsuapirest.service.AnimeFeed;
 import fr.kitsuapirest.service.AnimeService;
+import fr.kitsuapirest.service.CatalogVersion;
+import org.springframework.data.domain.Page;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * The AnimeController class handles API endpoints related to anime.
@@ -16,60 +29,209 @@ import java.util.Map;
 @RequestMapping("api/animes")
 public class AnimeController {
 
+    public static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final String FEED_STALE_HEADER = "X-Feed-Stale";
+    public static final String FULL_VIEW = "full";
+
+    /**
+     * Adds the X-Next-Cursor header to a response when there is a next page.
+     *
+     * @param response   the response builder.
+     * @param nextCursor the cursor of the next page, or null.
+     * @return the response builder.
+     */
+    public static ResponseEntity.BodyBuilder withNextCursor(ResponseEntity.BodyBuilder response, String nextCursor) {
+        if (nextCursor != null) {
+            response.header(NEXT_CURSOR_HEADER, nextCursor);
+        }
+        return response;
+    }
+
+    /**
+     * Starts a successful response carrying an ETag, which clients must revalidate before reusing.
+     *
+     * @param etag the ETag of the response.
+     * @return the response builder.
+     */
+    private static ResponseEntity.BodyBuilder okWithETag(String etag) {
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache());
+    }
+
     private final AnimeService animeService;
+    private final CatalogVersion catalogVersion;
 
     /**
      * Constructs a new AnimeController with the given AnimeService.
      *
-     * @param animeService the AnimeService to be used for anime-related operations.
+     * @param animeService   the AnimeService to be used for anime-related operations.
+     * @param catalogVersion the CatalogVersion used to build the ETags of the responses.
      */
-    public AnimeController(AnimeService animeService) {
+    public AnimeController(AnimeService animeService, CatalogVersion catalogVersion) {
         this.animeService = animeService;
+        this.catalogVersion = catalogVersion;
     }
 
     /**
-     * Retrieves all animes based on the provided parameters.
+     * Retrieves a page of animes based on the provided parameters.
+     * The total number of matching animes is returned in the X-Total-Count header.
+     * When a cursor parameter is given (empty for the first page), keyset pagination is used instead of page numbers
+     * and the cursor of the next page is returned in the X-Next-Cursor header.
+     * Animes are returned as cards unless the view parameter is full.
+     * The response is tagged with the catalog version, and If-None-Match requests are answered with 304 Not Modified
+     * without querying the catalog while it has not changed.
      *
-     * @param parameters the parameters for filtering the anime list.
-     * @return a ResponseEntity containing a list of Anime objects if successful, or an empty list if no animes are found.
+     * @param parameters the parameters for filtering, sorting and paging (page, size or cursor) the anime list.
+     * @param request    the current request, used to evaluate If-None-Match.
+     * @return a ResponseEntity containing a list of AnimeCard or Anime objects if successful, an empty list if no animes
+     * are found, or ResponseEntity.badRequest() if the cursor is invalid.
      */
     @GetMapping()
-    public ResponseEntity<List<Anime>> getAllAnimes(@RequestParam Map<String, String> parameters) {
-        List<Anime> animes = animeService.getAllAnimes(parameters);
-        return ResponseEntity.ok(animes);
+    public ResponseEntity<List<?>> getAllAnimes(@RequestParam Map<String, String> parameters, WebRequest request) {
+        String etag = catalogVersion.catalogETag();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+
+        boolean fullView = FULL_VIEW.equals(parameters.get("view"));
+
+        if (parameters.containsKey("cursor")) {
+            try {
+                KeysetPage<?> animes = fullView ? animeService.scrollAnimes(parameters) : animeService.scrollAnimeCards(parameters);
+                return withNextCursor(okWithETag(etag), animes.getNextCursor()).body(animes.getContent());
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+
+        Page<?> animes = fullView ? animeService.getAllAnimes(parameters) : animeService.getAnimeCards(parameters);
+        return okWithETag(etag)
+                .header(TOTAL_COUNT_HEADER, String.valueOf(animes.getTotalElements()))
+                .body(animes.getContent());
+    }
+
+    /**
+     * Exports every anime matching the filters as a JSON array.
+     * The response is written while the animes are read from the database, so it can hold the whole catalog.
+     *
+     * @param parameters the parameters for filtering and sorting the anime list.
+     * @return a ResponseEntity streaming the JSON array of Anime objects.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportAnimes(@RequestParam Map<String, String> parameters) {
+        StreamingResponseBody body = outputStream -> animeService.exportAnimes(parameters, outputStream);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"animes.json\"")
+                .body(body);
+    }
+
+    /**
+     * Retrieves the number of animes matching each subtype, status, age rating guide and start year for a query.
+     *
+     * @param parameters the filtering parameters of the anime list.
+     * @param request    the current request, used to evaluate If-None-Match.
+     * @return a ResponseEntity containing the AnimeFacets if successful,
+     * or HttpStatus.SERVICE_UNAVAILABLE while the catalog indexes are being built.
+     */
+    @GetMapping("/facets")
+    public ResponseEntity<AnimeFacets> getAnimeFacets(@RequestParam Map<String, String> parameters, WebRequest request) {
+        String etag = catalogVersion.catalogETag();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+
+        AnimeFacets facets = animeService.getAnimeFacets(parameters);
+        if (facets != null) {
+            return okWithETag(etag).body(facets);
+        } else {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    /**
+     * Retrieves title completions for the search box.
+     *
+     * @param q     the text typed by the user.
+     * @param limit the maximum number of suggestions.
+     * @return a list of AnimeSuggestion objects, most popular first.
+     */
+    @GetMapping("/suggest")
+    public List<AnimeSuggestion> suggestAnimes(@RequestParam String q, @RequestParam(defaultValue = "10") int limit) {
+        return animeService.suggestAnimes(q, limit);
     }
 
     /**
      * Retrieves the trending animes.
+     * The response is tagged with the version of the feed, and If-None-Match requests are answered with
+     * 304 Not Modified without serializing the feed while it has not been refreshed.
      *
+     * @param request the current request, used to evaluate If-None-Match.
      * @return a list of AnimeData objects representing the trending animes.
      */
     @GetMapping("/trending")
-    public List<AnimeData> getTrendingAnimes() {
-        return animeService.getTrendingAnimes();
+    public ResponseEntity<List<AnimeData>> getTrendingAnimes(WebRequest request) {
+        return feedResponse(AnimeFeed.TRENDING, animeService::getTrendingAnimes, request);
     }
 
     /**
      * Retrieves the upcoming animes.
+     * The response is tagged with the version of the feed, and If-None-Match requests are answered with
+     * 304 Not Modified without serializing the feed while it has not been refreshed.
      *
+     * @param request the current request, used to evaluate If-None-Match.
      * @return a list of AnimeData objects representing the upcoming animes.
      */
     @GetMapping("/upcoming")
-    public List<AnimeData> getUpcomingAnimes() {
-        return animeService.getUpcomingAnimes();
+    public ResponseEntity<List<AnimeData>> getUpcomingAnimes(WebRequest request) {
+        return feedResponse(AnimeFeed.UPCOMING, animeService::getUpcomingAnimes, request);
+    }
+
+    /**
+     * Builds the response of a Kitsu feed, flagged with the X-Feed-Stale header when Kitsu could not be reached.
+     * The ETag is read before the feed, so that a feed refreshed meanwhile is never tagged with an older version.
+     *
+     * @param feed    the feed.
+     * @param animes  loads the animes of the feed.
+     * @param request the current request, used to evaluate If-None-Match.
+     * @return the response, or null when the client's copy is still current.
+     */
+    private ResponseEntity<List<AnimeData>> feedResponse(AnimeFeed feed, Supplier<List<AnimeData>> animes,
+                                                         WebRequest request) {
+        boolean stale = animeService.isFeedStale(feed);
+        String etag = catalogVersion.feedETag(feed, animeService.getFeedVersion(feed), stale);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+
+        ResponseEntity.BodyBuilder response = okWithETag(etag);
+        if (stale) {
+            response.header(FEED_STALE_HEADER, "true");
+        }
+        return response.body(animes.get());
     }
 
     /**
      * Retrieves an anime by its ID.
+     * The response is tagged with the version of the anime, and If-None-Match requests are answered with
+     * 304 Not Modified without loading the anime while it has not changed.
      *
-     * @param id the ID of the anime to retrieve.
+     * @param id      the ID of the anime to retrieve.
+     * @param request the current request, used to evaluate If-None-Match.
      * @return a ResponseEntity containing the Anime object if found, or ResponseEntity.notFound() if the anime is not found.
      */
     @GetMapping("/{id}")
-    public ResponseEntity<Anime> getAnimeById(@PathVariable Long id) {
+    public ResponseEntity<Anime> getAnimeById(@PathVariable Long id, WebRequest request) {
+        String etag = catalogVersion.animeETag(id);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+
         Anime anime = animeService.getAnimeById(id);
         if (anime != null) {
-            return ResponseEntity.ok(anime);
+            return okWithETag(etag).body(anime);
         } else {
             return ResponseEntity.notFound().build();
         }
@@ -1,6 +1,7 @@
 package fr.kitsuapirest.controller.api;
 
 import fr.kitsuapirest.dto.CommentForm;
+import fr.kitsuapirest.dto.KeysetPage;
 import fr.kitsuapirest.exception.UnauthorizedException;
 import fr.kitsuapirest.model.Comment;
 import fr.kitsuapirest.service.CommentService;
@@ -28,14 +29,25 @@ public class CommentController {
     }
 
     /**
-     * Retrieves all comments for a specific anime.
+     * Retrieves a page of comments for a specific anime, oldest first.
+     * The cursor of the next page is returned in the X-Next-Cursor header.
      *
      * @param animeId the ID of the anime.
-     * @return a ResponseEntity containing a list of Comment objects if successful, or an empty list if no comments are found.
+     * @param cursor  the cursor returned with the previous page, absent for the first page.
+     * @param size    the maximum number of comments to return.
+     * @return a ResponseEntity containing a list of Comment objects if successful, an empty list if no comments are found,
+     * or ResponseEntity.badRequest() if the cursor is invalid.
      */
     @GetMapping
-    public ResponseEntity<List<Comment>> getCommentsByAnimeId(@PathVariable Long animeId) {
-        return ResponseEntity.ok(commentService.getCommentsByAnimeId(animeId));
+    public ResponseEntity<List<Comment>> getCommentsByAnimeId(@PathVariable Long animeId,
+                                                              @RequestParam(required = false) String cursor,
+                                                              @RequestParam(required = false) Integer size) {
+        try {
+            KeysetPage<Comment> comments = commentService.scrollCommentsByAnimeId(animeId, cursor, size);
+            return AnimeController.withNextCursor(ResponseEntity.ok(), comments.getNextCursor()).body(comments.getContent());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     /**
@@ -3,7 +3,6 @@ package fr.kitsuapirest.controller.api;
 import fr.kitsuapirest.dto.UserChangePwdForm;
 import fr.kitsuapirest.dto.UserLoginForm;
 import fr.kitsuapirest.dto.UserRegistrationForm;
-import fr.kitsuapirest.model.Anime;
 import fr.kitsuapirest.model.User;
 import fr.kitsuapirest.service.RatingService;
 import fr.kitsuapirest.service.UserService;
@@ -153,11 +152,14 @@ public class UserController {
      * Retrieves the top rated animes.
      *
      * @param principal the authenticated principal representing the user.
-     * @return a ResponseEntity containing a list of Anime objects representing the top rated animes.
+     * @param view      full to retrieve the whole Anime objects instead of anime cards.
+     * @return a ResponseEntity containing a list of AnimeCard or Anime objects representing the top rated animes.
      */
     @GetMapping("/top-rated")
-    public ResponseEntity<List<Anime>> getTopRatedAnimes(Principal principal) {
-        List<Anime> topRatedAnimes = ratingService.getTopRatedAnimes(principal);
-        return ResponseEntity.ok(topRatedAnimes);
+    public ResponseEntity<List<?>> getTopRatedAnimes(Principal principal, @RequestParam(required = false) String view) {
+        if (AnimeController.FULL_VIEW.equals(view)) {
+            return ResponseEntity.ok(ratingService.getTopRatedAnimes(principal));
+        }
+        return ResponseEntity.ok(ratingService.getTopRatedAnimeCards(principal));
     }
 }
@@ -1,7 +1,6 @@
 package fr.kitsuapirest.controller.api;
 
 import fr.kitsuapirest.exception.UnauthorizedException;
-import fr.kitsuapirest.model.Anime;
 import fr.kitsuapirest.model.Watchlist;
 import fr.kitsuapirest.service.UserService;
 import fr.kitsuapirest.service.WatchlistService;
@@ -34,11 +33,15 @@ public class WatchlistController {
      * Retrieves the watchlist for a specific user.
      *
      * @param userId the ID of the user.
-     * @return a list of Anime objects representing the user's watchlist.
+     * @param view   full to retrieve the whole Anime objects instead of anime cards.
+     * @return a list of AnimeCard or Anime objects representing the user's watchlist.
      */
     @GetMapping()
-    public List<Anime> getWatchlistByUserId(@PathVariable Integer userId) {
-        return watchlistService.getWatchlistByUserId(userId);
+    public List<?> getWatchlistByUserId(@PathVariable Integer userId, @RequestParam(required = false) String view) {
+        if (AnimeController.FULL_VIEW.equals(view)) {
+            return watchlistService.getWatchlistByUserId(userId);
+        }
+        return watchlistService.getWatchlistCardsByUserId(userId);
     }
 
     /**
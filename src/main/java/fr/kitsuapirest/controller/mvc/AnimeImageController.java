@@ -0,0 +1,93 @@
+package fr.kitsuapirest.controller.mvc;
+
+import fr.kitsuapirest.service.AnimeImageSize;
+import fr.kitsuapirest.service.AnimeImageStore;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * The AnimeImageController class serves the anime posters stored locally.
+ */
+@Controller
+public class AnimeImageController {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    private static final String CONTENT_TYPE_OPTIONS = "X-Content-Type-Options";
+    private static final String NOSNIFF = "nosniff";
+
+    private final AnimeImageStore animeImageStore;
+
+    public AnimeImageController(AnimeImageStore animeImageStore) {
+        this.animeImageStore = animeImageStore;
+    }
+
+    /**
+     * Serves the poster of an anime.
+     * Versioned URLs are cached for a year as immutable, since a new poster gets a new version.
+     * Whole files are sent by the servlet container with sendfile, without being copied through the application,
+     * and range requests are answered with regions of the file.
+     * The browsers are told not to sniff the content type, so that a poster is only ever rendered as an image.
+     *
+     * @param id       the ID of the anime.
+     * @param size     the size of the poster: tiny, small, large or original.
+     * @param version  the version of the poster, if any.
+     * @param request  the HTTP request.
+     * @param response the HTTP response.
+     * @return the poster, or null once handed to the servlet container.
+     * @throws IOException if the poster cannot be read.
+     */
+    @GetMapping("/images/anime/{id}/{size}")
+    public ResponseEntity<Resource> getAnimeImage(@PathVariable Long id, @PathVariable String size,
+                                                  @RequestParam(name = "v", required = false) String version,
+                                                  HttpServletRequest request, HttpServletResponse response) throws IOException {
+        AnimeImageSize imageSize = AnimeImageSize.fromName(size);
+        Path image = imageSize == null ? null : animeImageStore.get(id, imageSize);
+        if (image == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        MediaType contentType = MediaTypeFactory.getMediaType(image.getFileName().toString())
+                .orElse(MediaType.APPLICATION_OCTET_STREAM);
+        CacheControl cacheControl = version != null
+                ? CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable()
+                : CacheControl.maxAge(Duration.ofDays(1)).cachePublic();
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT)) && request.getHeader(HttpHeaders.RANGE) == null) {
+            long length = Files.size(image);
+            response.setContentType(contentType.toString());
+            response.setContentLengthLong(length);
+            response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+            response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+            response.setHeader(CONTENT_TYPE_OPTIONS, NOSNIFF);
+            request.setAttribute(SENDFILE_FILENAME, image.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, length);
+            return null;
+        }
+
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .cacheControl(cacheControl)
+                .header(CONTENT_TYPE_OPTIONS, NOSNIFF)
+                .body(new FileSystemResource(image));
+    }
+}
@@ -3,20 +3,18 @@ package fr.kitsuapirest.controller.mvc;
 import fr.kitsuapirest.dto.UserChangePwdForm;
 import fr.kitsuapirest.dto.UserLoginForm;
 import fr.kitsuapirest.dto.UserRegistrationForm;
+import fr.kitsuapirest.exception.NotFoundException;
 import fr.kitsuapirest.model.User;
-import fr.kitsuapirest.service.UserService;
+import fr.kitsuapirest.service.WebFacade;
 import jakarta.validation.Valid;
-import org.springframework.http.*;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
 
 import java.security.Principal;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Optional;
 
 /**
  * The FormController class handles the MVC endpoints for login, signup, and change password forms.
@@ -24,12 +22,10 @@ import java.util.Map;
 @Controller
 public class FormController {
 
-    private final RestTemplate restTemplate;
-    private final UserService userService;
+    private final WebFacade webFacade;
 
-    public FormController(RestTemplate restTemplate, UserService userService) {
-        this.restTemplate = restTemplate;
-        this.userService = userService;
+    public FormController(WebFacade webFacade) {
+        this.webFacade = webFacade;
     }
 
     /**
@@ -51,31 +47,13 @@ public class FormController {
      */
     @PostMapping("/login")
     public String login(@ModelAttribute("user") UserLoginForm userForm, Model model) {
-        String apiUrl = "http://localhost:8080/api/login";
-
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-
-        Map<String, String> data = new HashMap<>();
-        data.put("username", userForm.getUsername());
-        data.put("password", userForm.getPassword());
-
-        HttpEntity<Map<String, String>> request = new HttpEntity<>(data, headers);
-
-        try {
-            ResponseEntity<User> response = restTemplate.postForEntity(apiUrl, request, User.class);
-            if (response.getStatusCode() == HttpStatus.OK) {
-                User authenticatedUser = response.getBody();
-                model.addAttribute("user", authenticatedUser);
-                return "redirect:/dashboard";
-            } else {
-                model.addAttribute("error", "Authentication error");
-                return "login";
-            }
-        } catch (RestClientException e) {
-            model.addAttribute("error", "An error occurred during authentication");
-            return "login";
+        Optional<User> authenticatedUser = webFacade.login(userForm);
+        if (authenticatedUser.isPresent()) {
+            model.addAttribute("user", authenticatedUser.get());
+            return "redirect:/dashboard";
         }
+        model.addAttribute("error", "Authentication error");
+        return "login";
     }
 
     /**
@@ -98,25 +76,10 @@ public class FormController {
      */
     @PostMapping("/change-password")
     public String changePassword(@Valid UserChangePwdForm changePwdForm, Model model, Principal principal) {
-        String username = principal.getName();
-        Integer userId = userService.getUserIdByUsername(username);
-
-        String apiUrl = "http://localhost:8080/api/users/" + userId + "/change-password";
-
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-
-        Map<String, String> data = new HashMap<>();
-        data.put("password", changePwdForm.getPassword());
-        data.put("newPassword", changePwdForm.getNewPassword());
-        data.put("confirmPassword", changePwdForm.getConfirmPassword());
-
-        HttpEntity<Map<String, String>> request = new HttpEntity<>(data, headers);
-
         try {
-            restTemplate.postForEntity(apiUrl, request, Void.class);
+            webFacade.changePassword(principal.getName(), changePwdForm);
             return "redirect:/login";
-        } catch (RestClientException e) {
+        } catch (IllegalArgumentException | NotFoundException e) {
             model.addAttribute("error", "An error occurred during password change");
             return "change-password";
         }
@@ -150,24 +113,10 @@ public class FormController {
         }
 
 
-        String apiUrl = "http://localhost:8080/api/users";
-
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-
-        User newUser = new User();
-        newUser.setFirstname(userForm.getFirstname());
-        newUser.setLastname(userForm.getLastname());
-        newUser.setUsername(userForm.getUsername());
-        newUser.setEmail(userForm.getEmail());
-        newUser.setPassword(userForm.getPassword());
-
-        HttpEntity<User> request = new HttpEntity<>(newUser, headers);
-
         try {
-            restTemplate.postForEntity(apiUrl, request, Void.class);
+            webFacade.signUp(userForm);
             return "redirect:/login";
-        } catch (RestClientException e) {
+        } catch (DataIntegrityViolationException e) {
             model.addAttribute("error", "An error occurred during account creation");
             return "signup"; // Ou le nom de votre modèle Thymeleaf pour la page d'inscription
         }
@@ -1,5 +1,6 @@
 package fr.kitsuapirest.controller.mvc;
 
+import fr.kitsuapirest.exception.KitsuUnavailableException;
 import fr.kitsuapirest.service.KitsuApiService;
 import org.springframework.http.HttpStatus;
 import org.springframework.ui.Model;
@@ -47,4 +48,19 @@ public class GlobalExceptionHandler {
         model.addAttribute("errorMessage", "Anime not found");
         return "error";
     }
+
+    /**
+     * Handles the KitsuUnavailableException and maps it to the error page with a 503 status,
+     * so that a Kitsu outage fails fast instead of holding the request.
+     *
+     * @param model     the Model object to populate data for the view.
+     * @param exception the KitsuUnavailableException object representing the exception.
+     * @return the name of the view template for the error page.
+     */
+    @ExceptionHandler(KitsuUnavailableException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public String handleKitsuUnavailableException(Model model, KitsuUnavailableException exception) {
+        model.addAttribute("errorMessage", "Kitsu is temporarily unavailable, please try again later");
+        return "error";
+    }
 }
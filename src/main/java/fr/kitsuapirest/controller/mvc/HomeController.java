@@ -1,14 +1,14 @@
 package fr.kitsuapirest.controller.mvc;
 
-import fr.kitsuapirest.ApiResponse.AnimeData;
-import fr.kitsuapirest.model.Anime;
+import fr.kitsuapirest.dto.HomePage;
 import fr.kitsuapirest.model.User;
-import fr.kitsuapirest.service.AnimeService;
-import fr.kitsuapirest.service.UserService;
+import fr.kitsuapirest.service.HomeCarouselCache;
+import fr.kitsuapirest.service.HomePageService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.client.RestTemplate;
 
 import java.security.Principal;
 
@@ -18,52 +18,43 @@ import java.security.Principal;
 @Controller
 public class HomeController {
 
-    private final RestTemplate restTemplate;
-    private final UserService userService;
-    private final AnimeService animeService;
+    private final HomePageService homePageService;
+    private final HomeCarouselCache homeCarouselCache;
 
-    public HomeController(RestTemplate restTemplate, UserService userService, AnimeService animeService) {
-        this.restTemplate = restTemplate;
-        this.userService = userService;
-        this.animeService = animeService;
+    public HomeController(HomePageService homePageService, HomeCarouselCache homeCarouselCache) {
+        this.homePageService = homePageService;
+        this.homeCarouselCache = homeCarouselCache;
     }
 
     /**
      * Displays the home page.
+     * The carousels are served from the cache while the feeds and the catalog have not changed,
+     * so that only the user is loaded per request.
      *
      * @param model     the Model object to populate data for the view.
      * @param principal the authenticated principal representing the user.
+     * @param request   the HTTP request.
+     * @param response  the HTTP response.
      * @return the name of the view template for the home page.
      */
     @GetMapping("/")
-    public String index(Model model, Principal principal) {
-        String trendingApiUrl = "http://localhost:8080/api/animes/trending";
-        AnimeData[] trendingAnimes = restTemplate.getForObject(trendingApiUrl, AnimeData[].class);
-
-        String upcomingApiUrl = "http://localhost:8080/api/animes/upcoming";
-        AnimeData[] upcomingAnimes = restTemplate.getForObject(upcomingApiUrl, AnimeData[].class);
-
-        for (AnimeData animeData : trendingAnimes) {
-            Anime anime = animeService.getAnimeByTitle(animeData.getAttributes().getTitles().getEn());
-            if (anime != null) {
-                animeData.setId(anime.getId().toString());
-            }
+    public String index(Model model, Principal principal, HttpServletRequest request, HttpServletResponse response) {
+        String username = principal != null ? principal.getName() : null;
+        String version = homePageService.getCarouselsVersion();
+
+        String carousels = homeCarouselCache.get(version);
+        User user;
+        if (carousels != null) {
+            user = homePageService.getUser(username);
+        } else {
+            HomePage homePage = homePageService.getHomePage(username);
+            carousels = homeCarouselCache.render(version, homePage, request, response);
+            user = homePage.getUser();
         }
 
-        for (AnimeData animeData : upcomingAnimes) {
-            Anime anime = animeService.getAnimeByTitle(animeData.getAttributes().getTitles().getEn());
-            if (anime != null) {
-                animeData.setId(anime.getId().toString());
-            }
-        }
-
-        model.addAttribute("trendingAnimes", trendingAnimes);
-        model.addAttribute("upcomingAnimes", upcomingAnimes);
-
-        if (principal != null) {
-            String username = principal.getName();
-            User authenticatedUser = userService.getUserByUsername(username);
-            model.addAttribute("user", authenticatedUser);
+        model.addAttribute("carousels", carousels);
+        if (user != null) {
+            model.addAttribute("user", user);
         }
 
         return "home";
@@ -27,13 +27,16 @@ public class ProfilController {
     private final CommentService commentService;
     private final AnimeService animeService;
     private final KitsuApiService kitsuApiService;
+    private final KitsuCatalogImporter catalogImporter;
 
-    public ProfilController(UserService userService, RatingService ratingService, CommentService commentService, AnimeService animeService, KitsuApiService kitsuApiService) {
+    public ProfilController(UserService userService, RatingService ratingService, CommentService commentService, AnimeService animeService,
+                            KitsuApiService kitsuApiService, KitsuCatalogImporter catalogImporter) {
         this.userService = userService;
         this.ratingService = ratingService;
         this.commentService = commentService;
         this.animeService = animeService;
         this.kitsuApiService = kitsuApiService;
+        this.catalogImporter = catalogImporter;
     }
 
     /**
@@ -53,6 +56,9 @@ public class ProfilController {
         model.addAttribute("user", user);
         model.addAttribute("topRatedAnimes", topRatedAnimes);
         model.addAttribute("comments", comments);
+        if (user.getRole().equals(Role.ADMIN)) {
+            model.addAttribute("importStatus", catalogImporter.getStatus());
+        }
 
         return "profil";
     }
@@ -120,4 +126,29 @@ public class ProfilController {
 
         return "profil";
     }
+
+    /**
+     * Starts or stops the import of the whole Kitsu catalog, which runs in the background.
+     *
+     * @param principal the authenticated principal representing the user.
+     * @param action    start to start or resume the import, stop to stop it.
+     * @return a redirection to the user profile page, which shows the progress of the import.
+     * @throws UnauthorizedException if the user is not an administrator.
+     */
+    @PostMapping("/profil/importCatalog")
+    public String importCatalog(Principal principal, @RequestParam(value = "action", defaultValue = "start") String action) {
+        User user = userService.getUserByUsername(principal.getName());
+
+        if (!user.getRole().equals(Role.ADMIN)) {
+            throw new UnauthorizedException("Unauthorized access");
+        }
+
+        if (action.equals("stop")) {
+            catalogImporter.stop();
+        } else {
+            catalogImporter.start();
+        }
+
+        return "redirect:/profil";
+    }
 }
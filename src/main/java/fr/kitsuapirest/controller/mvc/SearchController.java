@@ -1,20 +1,12 @@
 package fr.kitsuapirest.controller.mvc;
 
-import fr.kitsuapirest.model.Anime;
-import fr.kitsuapirest.model.User;
-import fr.kitsuapirest.service.UserService;
-import org.springframework.core.ParameterizedTypeReference;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
+import fr.kitsuapirest.service.WebFacade;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.web.util.UriComponentsBuilder;
 
 import java.security.Principal;
-import java.util.List;
 import java.util.Map;
 
 /**
@@ -23,12 +15,10 @@ import java.util.Map;
 @Controller
 public class SearchController {
 
-    private final RestTemplate restTemplate;
-    private final UserService userService;
+    private final WebFacade webFacade;
 
-    public SearchController(RestTemplate restTemplate, UserService userService) {
-        this.restTemplate = restTemplate;
-        this.userService = userService;
+    public SearchController(WebFacade webFacade) {
+        this.webFacade = webFacade;
     }
 
     /**
@@ -41,29 +31,10 @@ public class SearchController {
      */
     @GetMapping("/anime")
     public String search(Model model, @RequestParam Map<String, String> allParams, Principal principal) {
-        String apiUrl = "http://localhost:8080/api/animes";
-        UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl(apiUrl);
-
-        allParams.forEach((key, value) -> {
-            if (value != null && !value.isEmpty()) {
-                builder.queryParam(key, value);
-            }
-        });
-
-        ResponseEntity<List<Anime>> response = restTemplate.exchange(
-                builder.toUriString(),
-                HttpMethod.GET,
-                null,
-                new ParameterizedTypeReference<List<Anime>>() {
-                });
-
-        List<Anime> animeList = response.getBody();
-        model.addAttribute("animes", animeList);
+        model.addAttribute("animes", webFacade.searchAnimes(allParams));
 
         if (principal != null) {
-            String username = principal.getName();
-            User authenticatedUser = userService.getUserByUsername(username);
-            model.addAttribute("user", authenticatedUser);
+            model.addAttribute("user", webFacade.getAuthenticatedUser(principal.getName()));
         }
 
         return "animes";
@@ -0,0 +1,63 @@
+package fr.kitsuapirest.dto;
+
+import java.time.LocalDate;
+
+/**
+ * The AnimeCard class holds the columns of an anime shown in the lists.
+ * It is built directly by the queries, so the synopsis column is never read, only its excerpt.
+ */
+public class AnimeCard {
+
+    private final Long id;
+    private final String title;
+    private final String image;
+    private final String subtype;
+    private final String status;
+    private final LocalDate startDate;
+    private final Integer episodeCount;
+    private final String synopsisExcerpt;
+
+    public AnimeCard(Long id, String title, String image, String subtype, String status, LocalDate startDate,
+                     Integer episodeCount, String synopsisExcerpt) {
+        this.id = id;
+        this.title = title;
+        this.image = image;
+        this.subtype = subtype;
+        this.status = status;
+        this.startDate = startDate;
+        this.episodeCount = episodeCount;
+        this.synopsisExcerpt = synopsisExcerpt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getImage() {
+        return image;
+    }
+
+    public String getSubtype() {
+        return subtype;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    public Integer getEpisodeCount() {
+        return episodeCount;
+    }
+
+    public String getSynopsisExcerpt() {
+        return synopsisExcerpt;
+    }
+}
@@ -0,0 +1,21 @@
+package fr.kitsuapirest.dto;
+
+import java.time.LocalDate;
+
+/**
+ * The AnimeColumnsView interface is a projection of the anime columns used to filter and sort the catalog.
+ */
+public interface AnimeColumnsView {
+
+    Long getId();
+
+    Integer getEpisodeCount();
+
+    LocalDate getStartDate();
+
+    String getSubtype();
+
+    String getStatus();
+
+    String getAgeRatingGuide();
+}
@@ -0,0 +1,40 @@
+package fr.kitsuapirest.dto;
+
+import java.util.Map;
+
+/**
+ * The AnimeFacets class holds the number of animes matching each value of the catalog filters.
+ * The counts of a filter take every other filter of the query into account, but not the filter itself,
+ * so that they tell how many results each option would return.
+ */
+public class AnimeFacets {
+
+    private final Map<String, Integer> subtype;
+    private final Map<String, Integer> status;
+    private final Map<String, Integer> ageRatingGuide;
+    private final Map<String, Integer> startYear;
+
+    public AnimeFacets(Map<String, Integer> subtype, Map<String, Integer> status,
+                       Map<String, Integer> ageRatingGuide, Map<String, Integer> startYear) {
+        this.subtype = subtype;
+        this.status = status;
+        this.ageRatingGuide = ageRatingGuide;
+        this.startYear = startYear;
+    }
+
+    public Map<String, Integer> getSubtype() {
+        return subtype;
+    }
+
+    public Map<String, Integer> getStatus() {
+        return status;
+    }
+
+    public Map<String, Integer> getAgeRatingGuide() {
+        return ageRatingGuide;
+    }
+
+    public Map<String, Integer> getStartYear() {
+        return startYear;
+    }
+}
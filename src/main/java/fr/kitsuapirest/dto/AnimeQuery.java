@@ -0,0 +1,203 @@
+package fr.kitsuapirest.dto;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The AnimeQuery class holds the normalized search parameters of the anime catalog.
+ */
+public class AnimeQuery {
+
+    public static final int DEFAULT_PAGE_SIZE = 24;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private static final Set<String> SORTS = Set.of("oldest", "newest", "lowest", "highest");
+
+    private final String title;
+    private final String subtype;
+    private final String status;
+    private final String ageRatingGuide;
+    private final Integer startYear;
+    private final String sortBy;
+    private final int page;
+    private final int size;
+
+    public AnimeQuery(String title, String subtype, String status, String ageRatingGuide, Integer startYear,
+                      String sortBy, int page, int size) {
+        this.title = title;
+        this.subtype = subtype;
+        this.status = status;
+        this.ageRatingGuide = ageRatingGuide;
+        this.startYear = startYear;
+        this.sortBy = sortBy;
+        this.page = page;
+        this.size = size;
+    }
+
+    /**
+     * Builds an AnimeQuery from the raw request parameters.
+     * Empty values are ignored and invalid paging values fall back to their defaults.
+     *
+     * @param parameters the query parameters for filtering, sorting and paging.
+     * @return the normalized AnimeQuery.
+     */
+    public static AnimeQuery fromParameters(Map<String, String> parameters) {
+        int page = Math.max(parseInt(parameters.get("page"), 0), 0);
+        int size = parseInt(parameters.get("size"), DEFAULT_PAGE_SIZE);
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            size = size < 1 ? DEFAULT_PAGE_SIZE : MAX_PAGE_SIZE;
+        }
+
+        return new AnimeQuery(
+                normalize(parameters.get("title")),
+                normalize(parameters.get("subtype")),
+                normalize(parameters.get("status")),
+                normalize(parameters.get("ageRatingGuide")),
+                parseYear(parameters.get("startYear")),
+                normalizeSortBy(parameters.get("sortBy")),
+                page,
+                size
+        );
+    }
+
+    /**
+     * Returns the sort matching the sortBy parameter.
+     * The id is always used as a tie-breaker so that pages are stable.
+     *
+     * @return the Sort to apply to the catalog query.
+     */
+    public Sort getSort() {
+        String sortProperty = getSortProperty();
+        if (sortProperty == null) {
+            return Sort.by(getSortDirection(), "id");
+        }
+        return Sort.by(getSortDirection(), sortProperty, "id");
+    }
+
+    /**
+     * Returns the property the catalog is sorted on before the id.
+     *
+     * @return startDate, episodeCount, or null when the catalog is only sorted by id.
+     */
+    public String getSortProperty() {
+        if (sortBy == null) {
+            return null;
+        }
+        return sortBy.equals("oldest") || sortBy.equals("newest") ? "startDate" : "episodeCount";
+    }
+
+    /**
+     * Returns the direction of the sort.
+     *
+     * @return DESC for the newest and highest sorts, ASC otherwise.
+     */
+    public Sort.Direction getSortDirection() {
+        return "newest".equals(sortBy) || "highest".equals(sortBy) ? Sort.Direction.DESC : Sort.Direction.ASC;
+    }
+
+    /**
+     * Returns the name of the sort, as stored in keyset cursors.
+     *
+     * @return the sortBy parameter, or id for the default sort.
+     */
+    public String getSortName() {
+        return sortBy != null ? sortBy : "id";
+    }
+
+    /**
+     * Returns the page request matching the page, size and sortBy parameters.
+     *
+     * @return the Pageable to apply to the catalog query.
+     */
+    public Pageable toPageable() {
+        return PageRequest.of(page, size, getSort());
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getSubtype() {
+        return subtype;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public String getAgeRatingGuide() {
+        return ageRatingGuide;
+    }
+
+    public Integer getStartYear() {
+        return startYear;
+    }
+
+    public String getSortBy() {
+        return sortBy;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        AnimeQuery that = (AnimeQuery) o;
+        return page == that.page && size == that.size
+                && Objects.equals(title, that.title)
+                && Objects.equals(subtype, that.subtype)
+                && Objects.equals(status, that.status)
+                && Objects.equals(ageRatingGuide, that.ageRatingGuide)
+                && Objects.equals(startYear, that.startYear)
+                && Objects.equals(sortBy, that.sortBy);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(title, subtype, status, ageRatingGuide, startYear, sortBy, page, size);
+    }
+
+    private static String normalize(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        return value.trim();
+    }
+
+    private static String normalizeSortBy(String sortBy) {
+        String value = normalize(sortBy);
+        return value != null && SORTS.contains(value) ? value : null;
+    }
+
+    private static Integer parseYear(String value) {
+        int year = parseInt(value, 0);
+        return year > 0 && year <= 9999 ? year : null;
+    }
+
+    private static int parseInt(String value, int defaultValue) {
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
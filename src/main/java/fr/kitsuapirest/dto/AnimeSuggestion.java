@@ -0,0 +1,21 @@
+package fr.kitsuapirest.dto;
+
+public class AnimeSuggestion {
+
+    private final Long id;
+
+    private final String title;
+
+    public AnimeSuggestion(Long id, String title) {
+        this.id = id;
+        this.title = title;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+}
@@ -0,0 +1,15 @@
+package fr.kitsuapirest.dto;
+
+/**
+ * The AnimeTitleView interface is a projection of the anime titles, without the other columns.
+ */
+public interface AnimeTitleView {
+
+    Long getId();
+
+    String getTitle();
+
+    String getTitleEnJp();
+
+    String getTitleJaJp();
+}
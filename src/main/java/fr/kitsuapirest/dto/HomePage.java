@@ -0,0 +1,48 @@
+package fr.kitsuapirest.dto;
+
+import fr.kitsuapirest.ApiResponse.AnimeData;
+import fr.kitsuapirest.model.User;
+
+import java.util.List;
+
+/**
+ * The HomePage class holds the sections of the home page.
+ * A section which could not be loaded in time is empty and flagged as unavailable.
+ */
+public class HomePage {
+
+    private final List<AnimeData> trendingAnimes;
+    private final List<AnimeData> upcomingAnimes;
+    private final User user;
+    private final boolean trendingUnavailable;
+    private final boolean upcomingUnavailable;
+
+    public HomePage(List<AnimeData> trendingAnimes, List<AnimeData> upcomingAnimes, User user,
+                    boolean trendingUnavailable, boolean upcomingUnavailable) {
+        this.trendingAnimes = trendingAnimes;
+        this.upcomingAnimes = upcomingAnimes;
+        this.user = user;
+        this.trendingUnavailable = trendingUnavailable;
+        this.upcomingUnavailable = upcomingUnavailable;
+    }
+
+    public List<AnimeData> getTrendingAnimes() {
+        return trendingAnimes;
+    }
+
+    public List<AnimeData> getUpcomingAnimes() {
+        return upcomingAnimes;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public boolean isTrendingUnavailable() {
+        return trendingUnavailable;
+    }
+
+    public boolean isUpcomingUnavailable() {
+        return upcomingUnavailable;
+    }
+}
@@ -0,0 +1,41 @@
+package fr.kitsuapirest.dto;
+
+/**
+ * The ImportStatus class describes the progress of the Kitsu catalog import.
+ */
+public class ImportStatus {
+
+    private final boolean running;
+    private final int nextOffset;
+    private final long importedCount;
+    private final double rowsPerSecond;
+    private final String error;
+
+    public ImportStatus(boolean running, int nextOffset, long importedCount, double rowsPerSecond, String error) {
+        this.running = running;
+        this.nextOffset = nextOffset;
+        this.importedCount = importedCount;
+        this.rowsPerSecond = rowsPerSecond;
+        this.error = error;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public int getNextOffset() {
+        return nextOffset;
+    }
+
+    public long getImportedCount() {
+        return importedCount;
+    }
+
+    public double getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,70 @@
+package fr.kitsuapirest.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * The KeysetCursor class is the opaque position of a keyset paginated listing.
+ * It holds the sort the listing uses, the sort key of the last row returned and its ID.
+ */
+public class KeysetCursor {
+
+    private static final String VERSION = "1";
+    private static final String SEPARATOR = "|";
+
+    private final String sort;
+    private final String key;
+    private final Long id;
+
+    public KeysetCursor(String sort, String key, Long id) {
+        this.sort = sort;
+        this.key = key;
+        this.id = id;
+    }
+
+    /**
+     * Decodes a cursor token.
+     *
+     * @param token the token returned with the previous page, may be null or empty for the first page.
+     * @return the decoded cursor, or null for the first page.
+     * @throws IllegalArgumentException if the token is not a valid cursor.
+     */
+    public static KeysetCursor decode(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = decoded.split("\\" + SEPARATOR, -1);
+            if (parts.length != 4 || !VERSION.equals(parts[0])) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new KeysetCursor(parts[1], parts[2].isEmpty() ? null : parts[2], Long.valueOf(parts[3]));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    /**
+     * Encodes this cursor into an opaque URL-safe token.
+     *
+     * @return the token.
+     */
+    public String encode() {
+        String value = VERSION + SEPARATOR + sort + SEPARATOR + (key == null ? "" : key) + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public String getSort() {
+        return sort;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public Long getId() {
+        return id;
+    }
+}
@@ -0,0 +1,30 @@
+package fr.kitsuapirest.dto;
+
+import java.util.List;
+
+/**
+ * The KeysetPage class holds one page of a keyset paginated listing and the cursor of the next page.
+ */
+public class KeysetPage<T> {
+
+    private final List<T> content;
+    private final String nextCursor;
+
+    public KeysetPage(List<T> content, String nextCursor) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    /**
+     * Returns the cursor of the next page.
+     *
+     * @return the cursor token, or null if this is the last page.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
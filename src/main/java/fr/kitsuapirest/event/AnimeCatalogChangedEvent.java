@@ -0,0 +1,43 @@
+package fr.kitsuapirest.event;
+
+import org.springframework.context.ApplicationEvent;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The AnimeCatalogChangedEvent is published whenever animes are added to, updated in or deleted from the catalog.
+ */
+public class AnimeCatalogChangedEvent extends ApplicationEvent {
+
+    public enum Type {
+        ADDED,
+        UPDATED,
+        DELETED
+    }
+
+    private final Type type;
+    private final List<Long> animeIds;
+
+    public AnimeCatalogChangedEvent(Object source, Type type, Collection<Long> animeIds) {
+        super(source);
+        this.type = type;
+        this.animeIds = List.copyOf(animeIds);
+    }
+
+    public static AnimeCatalogChangedEvent added(Object source, Long animeId) {
+        return new AnimeCatalogChangedEvent(source, Type.ADDED, List.of(animeId));
+    }
+
+    public static AnimeCatalogChangedEvent deleted(Object source, Long animeId) {
+        return new AnimeCatalogChangedEvent(source, Type.DELETED, List.of(animeId));
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public List<Long> getAnimeIds() {
+        return animeIds;
+    }
+}
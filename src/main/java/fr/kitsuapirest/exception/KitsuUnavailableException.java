@@ -0,0 +1,8 @@
+package fr.kitsuapirest.exception;
+
+public class KitsuUnavailableException extends RuntimeException {
+
+    public KitsuUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
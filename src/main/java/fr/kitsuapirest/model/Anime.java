@@ -1,25 +1,80 @@
 package fr.kitsuapirest.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 
 @Entity
-@Table(name = "anime")
+@Table(name = "anime", indexes = {
+        @Index(name = "idx_anime_subtype", columnList = "subtype"),
+        @Index(name = "idx_anime_status", columnList = "status"),
+        @Index(name = "idx_anime_age_rating_guide", columnList = "ageRatingGuide"),
+        @Index(name = "idx_anime_start_date_id", columnList = "startDate, id"),
+        @Index(name = "idx_anime_episode_count_id", columnList = "episodeCount, id"),
+        @Index(name = "uk_anime_kitsu_id", columnList = "kitsuId", unique = true),
+        @Index(name = "idx_anime_title", columnList = "title")
+})
 public class Anime {
 
+    public static final int SYNOPSIS_EXCERPT_LENGTH = 200;
+
+    /**
+     * The columns synchronized with Kitsu, which are both hashed into the content hash and copied by a sync.
+     */
+    private static final List<SyncedColumn<?>> SYNCED_COLUMNS = List.of(
+            new SyncedColumn<>(Anime::getTitle, Anime::setTitle),
+            new SyncedColumn<>(Anime::getTitleEnJp, Anime::setTitleEnJp),
+            new SyncedColumn<>(Anime::getTitleJaJp, Anime::setTitleJaJp),
+            new SyncedColumn<>(Anime::getImage, Anime::setImage),
+            new SyncedColumn<>(Anime::getSynopsis, Anime::setSynopsis),
+            new SyncedColumn<>(Anime::getStartDate, Anime::setStartDate),
+            new SyncedColumn<>(Anime::getEndDate, Anime::setEndDate),
+            new SyncedColumn<>(Anime::getEpisodeCount, Anime::setEpisodeCount),
+            new SyncedColumn<>(Anime::getEpisodeLength, Anime::setEpisodeLength),
+            new SyncedColumn<>(Anime::getSubtype, Anime::setSubtype),
+            new SyncedColumn<>(Anime::getStatus, Anime::setStatus),
+            new SyncedColumn<>(Anime::getAgeRatingGuide, Anime::setAgeRatingGuide));
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    @JsonIgnore
+    @Column(length = 20)
+    private String kitsuId;
+
+    @JsonIgnore
+    private Instant kitsuUpdatedAt;
+
+    @JsonIgnore
+    @Column(length = 64)
+    private String contentHash;
+
     private String title;
 
+    private String titleEnJp;
+
+    private String titleJaJp;
+
     private String image;
 
     @Column(columnDefinition = "LONGTEXT")
     private String synopsis;
 
+    @JsonIgnore
+    @Column(length = SYNOPSIS_EXCERPT_LENGTH + 1)
+    private String synopsisExcerpt;
+
 
     private LocalDate startDate;
 
@@ -66,6 +121,26 @@ public class Anime {
         this.id = id;
     }
 
+    public String getKitsuId() {
+        return kitsuId;
+    }
+
+    public void setKitsuId(String kitsuId) {
+        this.kitsuId = kitsuId;
+    }
+
+    public Instant getKitsuUpdatedAt() {
+        return kitsuUpdatedAt;
+    }
+
+    public void setKitsuUpdatedAt(Instant kitsuUpdatedAt) {
+        this.kitsuUpdatedAt = kitsuUpdatedAt;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
     public String getTitle() {
         return title;
     }
@@ -74,6 +149,22 @@ public class Anime {
         this.title = title;
     }
 
+    public String getTitleEnJp() {
+        return titleEnJp;
+    }
+
+    public void setTitleEnJp(String titleEnJp) {
+        this.titleEnJp = titleEnJp;
+    }
+
+    public String getTitleJaJp() {
+        return titleJaJp;
+    }
+
+    public void setTitleJaJp(String titleJaJp) {
+        this.titleJaJp = titleJaJp;
+    }
+
     public String getImage() {
         return image;
     }
@@ -90,6 +181,79 @@ public class Anime {
         this.synopsis = synopsis;
     }
 
+    public String getSynopsisExcerpt() {
+        return synopsisExcerpt;
+    }
+
+    /**
+     * Keeps the columns derived from the other ones up to date before every write.
+     */
+    @PrePersist
+    @PreUpdate
+    public void updateDerivedColumns() {
+        updateSynopsisExcerpt();
+        this.contentHash = computeContentHash();
+    }
+
+    /**
+     * Keeps the synopsis excerpt shown on the anime cards in sync with the synopsis,
+     * so that the lists never have to read the synopsis itself.
+     */
+    public void updateSynopsisExcerpt() {
+        this.synopsisExcerpt = excerpt(synopsis);
+    }
+
+    /**
+     * Computes the hash of the columns synchronized with Kitsu, so that a sync can tell whether an anime changed
+     * without comparing every column.
+     *
+     * @return the SHA-256 hash, in hexadecimal.
+     */
+    public String computeContentHash() {
+        StringBuilder content = new StringBuilder();
+        for (SyncedColumn<?> column : SYNCED_COLUMNS) {
+            Object value = column.getter.apply(this);
+            content.append(value == null ? "\u0000" : value.toString()).append('\u001f');
+        }
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(content.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Copies the columns synchronized with Kitsu from a fetched anime, along with its Kitsu update time.
+     *
+     * @param source the anime fetched from Kitsu.
+     */
+    public void copySyncedColumns(Anime source) {
+        for (SyncedColumn<?> column : SYNCED_COLUMNS) {
+            column.copy(source, this);
+        }
+        this.kitsuUpdatedAt = source.kitsuUpdatedAt;
+    }
+
+    /**
+     * Shortens a synopsis to SYNOPSIS_EXCERPT_LENGTH characters, cutting after the last whole word.
+     *
+     * @param synopsis the synopsis.
+     * @return the excerpt, ending with an ellipsis when the synopsis was shortened, or null if there is no synopsis.
+     */
+    public static String excerpt(String synopsis) {
+        if (synopsis == null || synopsis.length() <= SYNOPSIS_EXCERPT_LENGTH) {
+            return synopsis;
+        }
+
+        int end = synopsis.lastIndexOf(' ', SYNOPSIS_EXCERPT_LENGTH - 1);
+        if (end < SYNOPSIS_EXCERPT_LENGTH / 2) {
+            end = SYNOPSIS_EXCERPT_LENGTH - 1;
+        }
+        return synopsis.substring(0, end).stripTrailing() + "\u2026";
+    }
+
     public LocalDate getStartDate() {
         return startDate;
     }
@@ -145,4 +309,24 @@ public class Anime {
     public void setAgeRatingGuide(String ageRatingGuide) {
         this.ageRatingGuide = ageRatingGuide;
     }
+
+    /**
+     * The SyncedColumn class gives access to a column synchronized with Kitsu.
+     *
+     * @param <T> the type of the column.
+     */
+    private static final class SyncedColumn<T> {
+
+        private final Function<Anime, T> getter;
+        private final BiConsumer<Anime, T> setter;
+
+        private SyncedColumn(Function<Anime, T> getter, BiConsumer<Anime, T> setter) {
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        private void copy(Anime source, Anime target) {
+            setter.accept(target, getter.apply(source));
+        }
+    }
 }
@@ -9,7 +9,9 @@ import jakarta.validation.constraints.NotNull;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "comments")
+@Table(name = "comments", indexes = {
+        @Index(name = "idx_comments_anime_id_id", columnList = "anime_id, id")
+})
 public class Comment {
 
     @Id
@@ -0,0 +1,64 @@
+package fr.kitsuapirest.model;
+
+import fr.kitsuapirest.service.AnimeFeed;
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * The FeedSnapshot class stores a successful fetch of a Kitsu feed, as the JSON returned to the clients.
+ * The latest snapshot of each feed is loaded on startup, so that the feeds can be served before Kitsu answers.
+ */
+@Entity
+@Table(name = "feed_snapshot", indexes = @Index(name = "idx_feed_snapshot_feed_fetched_at", columnList = "feed, fetchedAt"))
+public class FeedSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private AnimeFeed feed;
+
+    @Column(nullable = false, length = 20)
+    private String season;
+
+    @Lob
+    @Column(nullable = false)
+    private String payload;
+
+    @Column(nullable = false)
+    private Instant fetchedAt;
+
+    public FeedSnapshot() {
+
+    }
+
+    public FeedSnapshot(AnimeFeed feed, String season, String payload, Instant fetchedAt) {
+        this.feed = feed;
+        this.season = season;
+        this.payload = payload;
+        this.fetchedAt = fetchedAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public AnimeFeed getFeed() {
+        return feed;
+    }
+
+    public String getSeason() {
+        return season;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public Instant getFetchedAt() {
+        return fetchedAt;
+    }
+}
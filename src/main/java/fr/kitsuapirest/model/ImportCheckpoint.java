@@ -0,0 +1,82 @@
+package fr.kitsuapirest.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * The ImportCheckpoint class records how far an import or sync job went, so that it resumes there after a restart.
+ * Imports resume from an offset, syncs from a watermark: the latest Kitsu update time they have seen.
+ * A sync which stopped before reaching its watermark also resumes from an offset, and keeps the latest update time
+ * it has seen as a pending watermark until it reaches the previous one.
+ */
+@Entity
+@Table(name = "import_checkpoint")
+public class ImportCheckpoint {
+
+    @Id
+    @Column(length = 50)
+    private String job;
+
+    private int nextOffset;
+
+    private long importedCount;
+
+    private Instant updatedAt;
+
+    private Instant watermark;
+
+    private Instant pendingWatermark;
+
+    public ImportCheckpoint() {
+
+    }
+
+    public ImportCheckpoint(String job) {
+        this.job = job;
+    }
+
+    public String getJob() {
+        return job;
+    }
+
+    public int getNextOffset() {
+        return nextOffset;
+    }
+
+    public void setNextOffset(int nextOffset) {
+        this.nextOffset = nextOffset;
+    }
+
+    public long getImportedCount() {
+        return importedCount;
+    }
+
+    public void setImportedCount(long importedCount) {
+        this.importedCount = importedCount;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public Instant getWatermark() {
+        return watermark;
+    }
+
+    public void setWatermark(Instant watermark) {
+        this.watermark = watermark;
+    }
+
+    public Instant getPendingWatermark() {
+        return pendingWatermark;
+    }
+
+    public void setPendingWatermark(Instant pendingWatermark) {
+        this.pendingWatermark = pendingWatermark;
+    }
+}
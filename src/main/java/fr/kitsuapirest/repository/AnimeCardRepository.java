@@ -0,0 +1,36 @@
+package fr.kitsuapirest.repository;
+
+import fr.kitsuapirest.dto.AnimeCard;
+import fr.kitsuapirest.model.Anime;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+/**
+ * The AnimeCardRepository interface runs the catalog specifications as AnimeCard queries,
+ * which only select the columns shown in the lists.
+ */
+public interface AnimeCardRepository {
+
+    /**
+     * Retrieves a page of anime cards matching the specification.
+     *
+     * @param specification the filters, or null to match every anime.
+     * @param pageable      the page and sort.
+     * @return the page of anime cards.
+     */
+    Page<AnimeCard> findCards(Specification<Anime> specification, Pageable pageable);
+
+    /**
+     * Retrieves the first anime cards matching the specification.
+     *
+     * @param specification the filters, or null to match every anime.
+     * @param sort          the sort.
+     * @param limit         the maximum number of anime cards.
+     * @return the anime cards.
+     */
+    List<AnimeCard> findCards(Specification<Anime> specification, Sort sort, int limit);
+}
@@ -0,0 +1,88 @@
+package fr.kitsuapirest.repository;
+
+import fr.kitsuapirest.dto.AnimeCard;
+import fr.kitsuapirest.model.Anime;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.util.List;
+
+/**
+ * The AnimeCardRepositoryImpl class builds the AnimeCard queries with a criteria constructor expression.
+ */
+public class AnimeCardRepositoryImpl implements AnimeCardRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<AnimeCard> findCards(Specification<Anime> specification, Pageable pageable) {
+        TypedQuery<AnimeCard> query = createCardQuery(specification, pageable.getSort());
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset());
+            query.setMaxResults(pageable.getPageSize());
+        }
+
+        return PageableExecutionUtils.getPage(query.getResultList(), pageable, () -> count(specification));
+    }
+
+    @Override
+    public List<AnimeCard> findCards(Specification<Anime> specification, Sort sort, int limit) {
+        return createCardQuery(specification, sort)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    private TypedQuery<AnimeCard> createCardQuery(Specification<Anime> specification, Sort sort) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<AnimeCard> query = cb.createQuery(AnimeCard.class);
+        Root<Anime> root = query.from(Anime.class);
+
+        query.select(cb.construct(AnimeCard.class,
+                root.get("id"),
+                root.get("title"),
+                root.get("image"),
+                root.get("subtype"),
+                root.get("status"),
+                root.get("startDate"),
+                root.get("episodeCount"),
+                root.get("synopsisExcerpt")));
+        applySpecification(specification, root, query, cb);
+        query.orderBy(QueryUtils.toOrders(sort, root, cb));
+
+        return entityManager.createQuery(query);
+    }
+
+    private long count(Specification<Anime> specification) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Anime> root = query.from(Anime.class);
+
+        query.select(cb.count(root));
+        applySpecification(specification, root, query, cb);
+
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    private static void applySpecification(Specification<Anime> specification, Root<Anime> root,
+                                           CriteriaQuery<?> query, CriteriaBuilder cb) {
+        if (specification == null) {
+            return;
+        }
+        Predicate predicate = specification.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+    }
+}
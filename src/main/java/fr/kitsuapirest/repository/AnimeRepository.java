@@ -1,13 +1,61 @@
 package fr.kitsuapirest.repository;
 
+import fr.kitsuapirest.dto.AnimeCard;
+import fr.kitsuapirest.dto.AnimeColumnsView;
+import fr.kitsuapirest.dto.AnimeTitleView;
 import fr.kitsuapirest.model.Anime;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
 @Repository
-public interface AnimeRepository extends JpaRepository<Anime, Long> {
+public interface AnimeRepository extends JpaRepository<Anime, Long>, JpaSpecificationExecutor<Anime>, AnimeCardRepository,
+        AnimeStreamRepository {
+
+    Anime findFirstByTitleOrderByIdAsc(String title);
+
+    List<AnimeTitleView> findByTitleIn(Collection<String> titles);
+
+    List<AnimeTitleView> findByKitsuIdIsNullAndTitleIn(Collection<String> titles);
+
+    boolean existsByKitsuId(String kitsuId);
+
+    List<AnimeTitleView> findAllProjectedBy();
+
+    List<AnimeColumnsView> findAllColumnsBy();
+
+    Slice<Anime> findByIdGreaterThan(Long id, Pageable pageable);
+
+    List<AnimeColumnsView> findColumnsByIdIn(Collection<Long> ids);
+
+    @Query("select new fr.kitsuapirest.dto.AnimeCard(a.id, a.title, a.image, a.subtype, a.status, a.startDate, "
+            + "a.episodeCount, a.synopsisExcerpt) from Anime a where a.id in :ids")
+    List<AnimeCard> findCardsByIdIn(@Param("ids") Collection<Long> ids);
+
+    Slice<Anime> findBySynopsisExcerptIsNullAndSynopsisIsNotNull(Pageable pageable);
+
+    @Query("select a.kitsuId from Anime a where a.kitsuId in :kitsuIds")
+    Set<String> findKitsuIdsByKitsuIdIn(@Param("kitsuIds") Collection<String> kitsuIds);
+
+    @Query("select a.id from Anime a where a.kitsuId in :kitsuIds")
+    List<Long> findIdsByKitsuIdIn(@Param("kitsuIds") Collection<String> kitsuIds);
+
+    List<Anime> findByKitsuIdIn(Collection<String> kitsuIds);
+
+    @Query("select a.kitsuId from Anime a where a.kitsuId is not null and a.status in :statuses")
+    List<String> findKitsuIdsByStatusIn(@Param("statuses") Collection<String> statuses);
 
-    Anime findByTitle(String title);
+    @Query("select a.image from Anime a where a.id = :id")
+    Optional<String> findImageById(@Param("id") Long id);
 }
 
 
@@ -0,0 +1,160 @@
+package fr.kitsuapirest.repository;
+
+import fr.kitsuapirest.dto.AnimeQuery;
+import fr.kitsuapirest.dto.KeysetCursor;
+import fr.kitsuapirest.model.Anime;
+import jakarta.persistence.criteria.Path;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+/**
+ * The AnimeSpecifications class builds the JPA specifications used to filter the anime catalog.
+ */
+public final class AnimeSpecifications {
+
+    private AnimeSpecifications() {
+    }
+
+    /**
+     * Builds the specification matching every filter of the given query.
+     *
+     * @param query the catalog query.
+     * @return the combined specification.
+     */
+    public static Specification<Anime> matching(AnimeQuery query) {
+        return Specification.where(titleContains(query.getTitle()))
+                .and(hasSubtype(query.getSubtype()))
+                .and(hasStatus(query.getStatus()))
+                .and(hasAgeRatingGuide(query.getAgeRatingGuide()))
+                .and(startedIn(query.getStartYear()));
+    }
+
+    /**
+     * Matches the animes whose title contains the given text, ignoring case.
+     *
+     * @param title the text to search, or null to match every anime.
+     * @return the specification.
+     */
+    public static Specification<Anime> titleContains(String title) {
+        if (title == null) {
+            return null;
+        }
+        String pattern = "%" + escapeLike(title.toLowerCase()) + "%";
+        return (root, query, cb) -> cb.like(cb.lower(root.get("title")), pattern, '\\');
+    }
+
+    /**
+     * Matches the animes of the given subtype.
+     * The comparison relies on the case-insensitive collation of the column so that the index can be used.
+     *
+     * @param subtype the subtype, or null to match every anime.
+     * @return the specification.
+     */
+    public static Specification<Anime> hasSubtype(String subtype) {
+        if (subtype == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.equal(root.get("subtype"), subtype);
+    }
+
+    /**
+     * Matches the animes with the given status.
+     * The comparison relies on the case-insensitive collation of the column so that the index can be used.
+     *
+     * @param status the status, or null to match every anime.
+     * @return the specification.
+     */
+    public static Specification<Anime> hasStatus(String status) {
+        if (status == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.equal(root.get("status"), status);
+    }
+
+    /**
+     * Matches the animes with the given age rating guide.
+     *
+     * @param ageRatingGuide the age rating guide, or null to match every anime.
+     * @return the specification.
+     */
+    public static Specification<Anime> hasAgeRatingGuide(String ageRatingGuide) {
+        if (ageRatingGuide == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.equal(root.get("ageRatingGuide"), ageRatingGuide);
+    }
+
+    /**
+     * Matches the animes which started airing during the given year.
+     * The year is expressed as a date range so that the start date index can be used.
+     *
+     * @param year the year, or null to match every anime.
+     * @return the specification.
+     */
+    public static Specification<Anime> startedIn(Integer year) {
+        if (year == null) {
+            return null;
+        }
+        LocalDate from = LocalDate.of(year, 1, 1);
+        return (root, query, cb) -> cb.and(
+                cb.greaterThanOrEqualTo(root.get("startDate"), from),
+                cb.lessThan(root.get("startDate"), from.plusYears(1)));
+    }
+
+    /**
+     * Matches the animes that come after the cursor in the sort order of the query.
+     * Null sort keys are ordered like MySQL does: first in ascending order and last in descending order.
+     *
+     * @param query  the catalog query.
+     * @param cursor the position of the last anime returned, or null for the first page.
+     * @return the seek specification.
+     */
+    public static Specification<Anime> after(AnimeQuery query, KeysetCursor cursor) {
+        if (cursor == null) {
+            return null;
+        }
+
+        String property = query.getSortProperty();
+        boolean descending = query.getSortDirection().isDescending();
+        Long lastId = cursor.getId();
+
+        if (property == null) {
+            return (root, criteriaQuery, cb) -> cb.greaterThan(root.get("id"), lastId);
+        }
+        try {
+            if (property.equals("startDate")) {
+                LocalDate key = cursor.getKey() == null ? null : LocalDate.parse(cursor.getKey());
+                return seek(property, key, lastId, descending);
+            }
+            Integer key = cursor.getKey() == null ? null : Integer.valueOf(cursor.getKey());
+            return seek(property, key, lastId, descending);
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    private static <Y extends Comparable<? super Y>> Specification<Anime> seek(String property, Y key, Long lastId, boolean descending) {
+        return (root, criteriaQuery, cb) -> {
+            Path<Y> sortKey = root.get(property);
+            Path<Long> id = root.get("id");
+
+            if (!descending) {
+                if (key == null) {
+                    return cb.or(cb.and(cb.isNull(sortKey), cb.greaterThan(id, lastId)), cb.isNotNull(sortKey));
+                }
+                return cb.or(cb.greaterThan(sortKey, key), cb.and(cb.equal(sortKey, key), cb.greaterThan(id, lastId)));
+            }
+
+            if (key == null) {
+                return cb.and(cb.isNull(sortKey), cb.lessThan(id, lastId));
+            }
+            return cb.or(cb.lessThan(sortKey, key), cb.and(cb.equal(sortKey, key), cb.lessThan(id, lastId)), cb.isNull(sortKey));
+        };
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,26 @@
+package fr.kitsuapirest.repository;
+
+import fr.kitsuapirest.model.Anime;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.stream.Stream;
+
+/**
+ * The AnimeStreamRepository interface reads large anime result sets as a stream of rows fetched in chunks.
+ */
+public interface AnimeStreamRepository {
+
+    int STREAM_FETCH_SIZE = 500;
+
+    /**
+     * Streams the animes matching the specification.
+     * Each anime is detached once read, so that the persistence context does not grow with the result.
+     * The stream must be consumed within a transaction and closed afterwards.
+     *
+     * @param specification the filters, or null to match every anime.
+     * @param sort          the sort.
+     * @return the stream of animes.
+     */
+    Stream<Anime> streamAnimes(Specification<Anime> specification, Sort sort);
+}
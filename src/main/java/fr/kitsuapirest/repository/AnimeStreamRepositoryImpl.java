@@ -0,0 +1,61 @@
+package fr.kitsuapirest.repository;
+
+import fr.kitsuapirest.model.Anime;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import java.util.stream.Stream;
+
+/**
+ * The AnimeStreamRepositoryImpl class streams the animes through a JDBC cursor with a fixed fetch size.
+ * MySQL Connector/J ignores the fetch size unless cursor fetching is enabled for the whole connection,
+ * so on MySQL the export statement alone asks for a row by row streaming result set instead.
+ */
+public class AnimeStreamRepositoryImpl implements AnimeStreamRepository {
+
+    /**
+     * The fetch size which makes MySQL Connector/J stream a forward only, read only result set row by row.
+     */
+    private static final int MYSQL_STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Stream<Anime> streamAnimes(Specification<Anime> specification, Sort sort) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Anime> query = cb.createQuery(Anime.class);
+        Root<Anime> root = query.from(Anime.class);
+
+        if (specification != null) {
+            Predicate predicate = specification.toPredicate(root, query, cb);
+            if (predicate != null) {
+                query.where(predicate);
+            }
+        }
+        query.orderBy(QueryUtils.toOrders(sort, root, cb));
+
+        return entityManager.createQuery(query)
+                .setHint(AvailableHints.HINT_FETCH_SIZE, fetchSize())
+                .setHint(AvailableHints.HINT_READ_ONLY, true)
+                .getResultStream()
+                .peek(entityManager::detach);
+    }
+
+    private int fetchSize() {
+        Dialect dialect = entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect();
+        return dialect instanceof MySQLDialect ? MYSQL_STREAMING_FETCH_SIZE : STREAM_FETCH_SIZE;
+    }
+}
@@ -2,6 +2,8 @@ package fr.kitsuapirest.repository;
 
 import fr.kitsuapirest.model.Comment;
 import fr.kitsuapirest.model.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -12,6 +14,8 @@ import java.util.Optional;
 public interface CommentRepository extends JpaRepository<Comment, Long> {
     List<Comment> findByAnimeId(Long animeId);
 
+    Slice<Comment> findByAnimeIdAndIdGreaterThan(Long animeId, Long id, Pageable pageable);
+
     Optional<Comment> findById(Long id);
 
     List<Comment> findByUser(User user);
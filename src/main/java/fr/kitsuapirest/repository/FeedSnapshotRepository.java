@@ -0,0 +1,20 @@
+package fr.kitsuapirest.repository;
+
+import fr.kitsuapirest.model.FeedSnapshot;
+import fr.kitsuapirest.service.AnimeFeed;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Optional;
+
+@Repository
+public interface FeedSnapshotRepository extends JpaRepository<FeedSnapshot, Long> {
+
+    Optional<FeedSnapshot> findFirstByFeedOrderByFetchedAtDesc(AnimeFeed feed);
+
+    @Transactional
+    long deleteByFeedAndFetchedAtBefore(AnimeFeed feed, Instant fetchedAt);
+
+}
@@ -0,0 +1,10 @@
+package fr.kitsuapirest.repository;
+
+import fr.kitsuapirest.model.ImportCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ImportCheckpointRepository extends JpaRepository<ImportCheckpoint, String> {
+
+}
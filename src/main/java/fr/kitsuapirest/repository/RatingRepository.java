@@ -1,7 +1,11 @@
 package fr.kitsuapirest.repository;
 
+import fr.kitsuapirest.dto.AnimeCard;
 import fr.kitsuapirest.model.Rating;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -11,4 +15,11 @@ public interface RatingRepository extends JpaRepository<Rating, Long> {
     List<Rating> findByAnimeId(Long animeId);
 
     Rating findByUserAnimeKey(String userAnimeKey);
+
+    @Query("select new fr.kitsuapirest.dto.AnimeCard(a.id, a.title, a.image, a.subtype, a.status, a.startDate, "
+            + "a.episodeCount, a.synopsisExcerpt) from Rating r join r.anime a where r.user.id = :userId order by r.rating desc")
+    List<AnimeCard> findTopRatedCardsByUserId(@Param("userId") Integer userId, Pageable pageable);
+
+    @Query("select r.anime.id, count(r) from Rating r group by r.anime.id")
+    List<Object[]> countRatingsByAnime();
 }
@@ -1,8 +1,11 @@
 package fr.kitsuapirest.repository;
 
+import fr.kitsuapirest.dto.AnimeCard;
 import fr.kitsuapirest.model.User;
 import fr.kitsuapirest.model.Watchlist;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -17,4 +20,11 @@ public interface WatchlistRepository extends JpaRepository<Watchlist, Long> {
 
     Optional<Watchlist> findByUser_Id(Integer userId);
 
+    @Query("select new fr.kitsuapirest.dto.AnimeCard(a.id, a.title, a.image, a.subtype, a.status, a.startDate, "
+            + "a.episodeCount, a.synopsisExcerpt) from Watchlist w join w.animes a where w.user.id = :userId")
+    List<AnimeCard> findCardsByUserId(@Param("userId") Integer userId);
+
+    @Query("select a.id, count(w) from Watchlist w join w.animes a group by a.id")
+    List<Object[]> countWatchlistsByAnime();
+
 }
@@ -0,0 +1,555 @@
+package fr.kitsuapirest.service;
+
+import fr.kitsuapirest.dto.AnimeColumnsView;
+import fr.kitsuapirest.dto.AnimeFacets;
+import fr.kitsuapirest.dto.AnimeQuery;
+import fr.kitsuapirest.event.AnimeCatalogChangedEvent;
+import fr.kitsuapirest.repository.AnimeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The AnimeColumnStore class keeps the filterable columns of the catalog in memory as primitive arrays,
+ * so that the anime browser can be filtered, sorted, paged and faceted without querying the database.
+ * Every change produces a new immutable snapshot which is swapped atomically, so readers never wait.
+ * The changes are applied one at a time, reading the changed rows and swapping the snapshot under a lock, so that
+ * two changes of the same anime cannot land in reverse order.
+ * The changes received before the first snapshot is built are queued and applied once it is built.
+ */
+@Component
+public class AnimeColumnStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnimeColumnStore.class);
+
+    private final AnimeRepository animeRepository;
+    private final boolean enabled;
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+    private final Queue<AnimeCatalogChangedEvent> pendingChanges = new ArrayDeque<>();
+    private final Lock writeLock = new ReentrantLock();
+
+    public AnimeColumnStore(AnimeRepository animeRepository,
+                            @Value("${kodo.catalog.in-memory.enabled:false}") boolean enabled) {
+        this.animeRepository = animeRepository;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Indicates whether the store is enabled and has been built.
+     *
+     * @return true if the store can serve catalog queries.
+     */
+    public boolean isReady() {
+        return enabled && isBuilt();
+    }
+
+    /**
+     * Indicates whether the store has been built. The store is always maintained for the facets,
+     * even when it does not serve the catalog queries.
+     *
+     * @return true if the store can serve facet counts.
+     */
+    public boolean isBuilt() {
+        return snapshot.get() != null;
+    }
+
+    /**
+     * Filters, sorts and pages the catalog. The title filter is not supported and is ignored.
+     *
+     * @param query the catalog query.
+     * @return the IDs of the requested page of animes, along with the total number of matches.
+     */
+    public Page<Long> query(AnimeQuery query) {
+        return snapshot.get().query(query);
+    }
+
+    /**
+     * Counts the animes matching each filter value for the given query.
+     *
+     * @param query    the catalog query, its title filter is ignored.
+     * @param titleIds the IDs of the animes matching the title filter, or null when there is no title filter.
+     * @return the facet counts.
+     */
+    public AnimeFacets facets(AnimeQuery query, Collection<Long> titleIds) {
+        return snapshot.get().facets(query, titleIds);
+    }
+
+    /**
+     * Builds the first snapshot once the application has started.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        Snapshot rebuilt = Snapshot.build(animeRepository.findAllColumnsBy());
+        writeLock.lock();
+        try {
+            snapshot.set(rebuilt);
+            AnimeCatalogChangedEvent event;
+            while ((event = pendingChanges.poll()) != null) {
+                apply(event);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+
+        logger.info("Anime column store built with {} animes in {} ms", rebuilt.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Applies a catalog change to a copy of the current snapshot and swaps it in.
+     * The change is applied before the catalog version is bumped.
+     *
+     * @param event the catalog change event.
+     */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onCatalogChanged(AnimeCatalogChangedEvent event) {
+        writeLock.lock();
+        try {
+            if (snapshot.get() == null) {
+                pendingChanges.add(event);
+            } else {
+                apply(event);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Applies a change to the current snapshot, with the write lock held.
+     * Applying a change twice is harmless, since the changed animes are read again from the database.
+     *
+     * @param event the catalog change event.
+     */
+    private void apply(AnimeCatalogChangedEvent event) {
+        Snapshot current = snapshot.get();
+        if (event.getType() == AnimeCatalogChangedEvent.Type.DELETED) {
+            snapshot.set(current.withoutAnimes(event.getAnimeIds()));
+        } else {
+            snapshot.set(current.withAnimes(animeRepository.findColumnsByIdIn(event.getAnimeIds())));
+        }
+    }
+
+    /**
+     * The Snapshot class is an immutable columnar copy of the catalog.
+     * Rows are ordered by anime ID, so that the row number is also the ID tie-breaker of every sort.
+     * Deleted rows are only cleared from the live bitmap, the columns are compacted once a quarter of the rows are dead.
+     */
+    public static final class Snapshot {
+
+        private static final int NULL_VALUE = Integer.MIN_VALUE;
+
+        private final int rowCount;
+        private final long[] ids;
+        private final int[] episodeCounts;
+        private final int[] startDays;
+        private final DictionaryColumn subtypes;
+        private final DictionaryColumn statuses;
+        private final DictionaryColumn ageRatingGuides;
+        private final DictionaryColumn startYears;
+        private final BitSet live;
+        private final int liveCount;
+
+        private Snapshot(int rowCount, long[] ids, int[] episodeCounts, int[] startDays, DictionaryColumn subtypes,
+                         DictionaryColumn statuses, DictionaryColumn ageRatingGuides, DictionaryColumn startYears,
+                         BitSet live) {
+            this.rowCount = rowCount;
+            this.ids = ids;
+            this.episodeCounts = episodeCounts;
+            this.startDays = startDays;
+            this.subtypes = subtypes;
+            this.statuses = statuses;
+            this.ageRatingGuides = ageRatingGuides;
+            this.startYears = startYears;
+            this.live = live;
+            this.liveCount = live.cardinality();
+        }
+
+        /**
+         * Builds a snapshot from the catalog columns.
+         *
+         * @param animes the columns of every anime.
+         * @return the snapshot.
+         */
+        public static Snapshot build(List<? extends AnimeColumnsView> animes) {
+            return empty().append(animes);
+        }
+
+        private static Snapshot empty() {
+            return new Snapshot(0, new long[0], new int[0], new int[0], DictionaryColumn.empty(),
+                    DictionaryColumn.empty(), DictionaryColumn.empty(), DictionaryColumn.empty(), new BitSet());
+        }
+
+        /**
+         * Returns a copy of this snapshot with the given animes added or replaced.
+         * Animes newer than every known anime are appended, any other change rebuilds the columns.
+         *
+         * @param animes the columns of the added or updated animes.
+         * @return the new snapshot.
+         */
+        public Snapshot withAnimes(List<? extends AnimeColumnsView> animes) {
+            if (animes.isEmpty()) {
+                return this;
+            }
+
+            long maxId = rowCount == 0 ? Long.MIN_VALUE : ids[rowCount - 1];
+            if (animes.stream().allMatch(anime -> anime.getId() > maxId)) {
+                return append(animes);
+            }
+
+            Set<Long> replacedIds = new HashSet<>();
+            animes.forEach(anime -> replacedIds.add(anime.getId()));
+
+            List<AnimeColumnsView> rows = liveRows(replacedIds);
+            rows.addAll(animes);
+            return empty().append(rows);
+        }
+
+        /**
+         * Returns a copy of this snapshot without the given animes.
+         *
+         * @param animeIds the IDs of the deleted animes.
+         * @return the new snapshot.
+         */
+        public Snapshot withoutAnimes(Collection<Long> animeIds) {
+            BitSet remaining = (BitSet) live.clone();
+            for (Long animeId : animeIds) {
+                int row = Arrays.binarySearch(ids, 0, rowCount, animeId);
+                if (row >= 0) {
+                    remaining.clear(row);
+                }
+            }
+
+            if (remaining.equals(live)) {
+                return this;
+            }
+
+            Snapshot snapshot = new Snapshot(rowCount, ids, episodeCounts, startDays, subtypes, statuses, ageRatingGuides,
+                    startYears, remaining);
+            if (snapshot.liveCount < rowCount * 3 / 4) {
+                return empty().append(snapshot.liveRows(Set.of()));
+            }
+            return snapshot;
+        }
+
+        /**
+         * Filters, sorts and pages the catalog.
+         * Null sort keys are ordered like MySQL does: first in ascending order and last in descending order.
+         *
+         * @param query the catalog query, its title filter is ignored.
+         * @return the IDs of the requested page of animes, along with the total number of matches.
+         */
+        public Page<Long> query(AnimeQuery query) {
+            BitSet matches = intersect(live, subtypes.rowsMatching(query.getSubtype()),
+                    statuses.rowsMatching(query.getStatus()), ageRatingGuides.rowsMatching(query.getAgeRatingGuide()),
+                    startYears.rowsMatching(yearKey(query.getStartYear())));
+
+            Pageable pageable = query.toPageable();
+            int total = matches.cardinality();
+            int from = (int) Math.min(pageable.getOffset(), total);
+            int to = Math.min(from + pageable.getPageSize(), total);
+            List<Long> animeIds = new ArrayList<>(to - from);
+
+            String sortProperty = query.getSortProperty();
+            if (sortProperty == null) {
+                int row = matches.nextSetBit(0);
+                for (int rank = 0; rank < to; rank++, row = matches.nextSetBit(row + 1)) {
+                    if (rank >= from) {
+                        animeIds.add(ids[row]);
+                    }
+                }
+                return new PageImpl<>(animeIds, pageable, total);
+            }
+
+            // The sort key and the row are packed in one long, so that a primitive sort also breaks ties by ID
+            int[] column = sortProperty.equals("startDate") ? startDays : episodeCounts;
+            long[] keys = new long[total];
+            int index = 0;
+            for (int row = matches.nextSetBit(0); row >= 0; row = matches.nextSetBit(row + 1)) {
+                keys[index++] = ((long) column[row] << 32) | row;
+            }
+            Arrays.sort(keys);
+
+            boolean descending = query.getSortDirection().isDescending();
+            for (int rank = from; rank < to; rank++) {
+                long key = keys[descending ? total - 1 - rank : rank];
+                animeIds.add(ids[(int) key]);
+            }
+            return new PageImpl<>(animeIds, pageable, total);
+        }
+
+        /**
+         * Counts the animes matching each filter value for the given query.
+         * The counts of a filter are computed without that filter, so that each value tells how many results it would return.
+         *
+         * @param query    the catalog query, its title filter is ignored.
+         * @param titleIds the IDs of the animes matching the title filter, or null when there is no title filter.
+         * @return the facet counts.
+         */
+        public AnimeFacets facets(AnimeQuery query, Collection<Long> titleIds) {
+            BitSet base = titleIds == null ? live : intersect(live, rowsOf(titleIds));
+            BitSet subtypeRows = subtypes.rowsMatching(query.getSubtype());
+            BitSet statusRows = statuses.rowsMatching(query.getStatus());
+            BitSet ageRatingGuideRows = ageRatingGuides.rowsMatching(query.getAgeRatingGuide());
+            BitSet startYearRows = startYears.rowsMatching(yearKey(query.getStartYear()));
+
+            Map<String, Integer> yearCounts = new TreeMap<>(Comparator.reverseOrder());
+            yearCounts.putAll(startYears.counts(intersect(base, subtypeRows, statusRows, ageRatingGuideRows)));
+
+            return new AnimeFacets(
+                    subtypes.counts(intersect(base, statusRows, ageRatingGuideRows, startYearRows)),
+                    statuses.counts(intersect(base, subtypeRows, ageRatingGuideRows, startYearRows)),
+                    ageRatingGuides.counts(intersect(base, subtypeRows, statusRows, startYearRows)),
+                    new LinkedHashMap<>(yearCounts)
+            );
+        }
+
+        public int size() {
+            return liveCount;
+        }
+
+        private BitSet rowsOf(Collection<Long> animeIds) {
+            BitSet rows = new BitSet(rowCount);
+            for (Long animeId : animeIds) {
+                int row = Arrays.binarySearch(ids, 0, rowCount, animeId);
+                if (row >= 0) {
+                    rows.set(row);
+                }
+            }
+            return rows;
+        }
+
+        /**
+         * Intersects the base rows with every filter, null filters matching every row.
+         */
+        private static BitSet intersect(BitSet base, BitSet... filters) {
+            BitSet rows = (BitSet) base.clone();
+            for (BitSet filter : filters) {
+                if (filter != null) {
+                    rows.and(filter);
+                }
+            }
+            return rows;
+        }
+
+        private static String yearKey(Integer year) {
+            return year != null ? year.toString() : null;
+        }
+
+        private Snapshot append(List<? extends AnimeColumnsView> animes) {
+            List<AnimeColumnsView> sorted = new ArrayList<>(animes);
+            sorted.sort(Comparator.comparing(AnimeColumnsView::getId));
+
+            int newRowCount = rowCount + sorted.size();
+            long[] newIds = Arrays.copyOf(ids, newRowCount);
+            int[] newEpisodeCounts = Arrays.copyOf(episodeCounts, newRowCount);
+            int[] newStartDays = Arrays.copyOf(startDays, newRowCount);
+            DictionaryColumn newSubtypes = subtypes.copy(newRowCount);
+            DictionaryColumn newStatuses = statuses.copy(newRowCount);
+            DictionaryColumn newAgeRatingGuides = ageRatingGuides.copy(newRowCount);
+            DictionaryColumn newStartYears = startYears.copy(newRowCount);
+            BitSet newLive = (BitSet) live.clone();
+
+            int row = rowCount;
+            for (AnimeColumnsView anime : sorted) {
+                newIds[row] = anime.getId();
+                newEpisodeCounts[row] = anime.getEpisodeCount() != null ? anime.getEpisodeCount() : NULL_VALUE;
+                newStartDays[row] = anime.getStartDate() != null ? (int) anime.getStartDate().toEpochDay() : NULL_VALUE;
+                newSubtypes.set(row, anime.getSubtype());
+                newStatuses.set(row, anime.getStatus());
+                newAgeRatingGuides.set(row, anime.getAgeRatingGuide());
+                newStartYears.set(row, anime.getStartDate() != null ? Integer.toString(anime.getStartDate().getYear()) : null);
+                newLive.set(row);
+                row++;
+            }
+
+            return new Snapshot(newRowCount, newIds, newEpisodeCounts, newStartDays, newSubtypes, newStatuses,
+                    newAgeRatingGuides, newStartYears, newLive);
+        }
+
+        /**
+         * Reads back the live rows, except the given animes.
+         */
+        private List<AnimeColumnsView> liveRows(Set<Long> excludedIds) {
+            List<AnimeColumnsView> rows = new ArrayList<>(liveCount);
+            for (int row = live.nextSetBit(0); row >= 0; row = live.nextSetBit(row + 1)) {
+                if (!excludedIds.contains(ids[row])) {
+                    rows.add(new Row(ids[row],
+                            episodeCounts[row] != NULL_VALUE ? episodeCounts[row] : null,
+                            startDays[row] != NULL_VALUE ? LocalDate.ofEpochDay(startDays[row]) : null,
+                            subtypes.value(row), statuses.value(row), ageRatingGuides.value(row)));
+                }
+            }
+            return rows;
+        }
+    }
+
+    /**
+     * The DictionaryColumn class stores a text column as one int code per row,
+     * along with the bitmap of the rows holding each value. Values are compared ignoring case, like the database does.
+     * A column is only modified while its snapshot is being built.
+     */
+    private static final class DictionaryColumn {
+
+        private static final BitSet NO_ROWS = new BitSet();
+
+        private final int[] codes;
+        private final List<String> values;
+        private final Map<String, Integer> codesByKey;
+        private final List<BitSet> rowsByCode;
+
+        private DictionaryColumn(int[] codes, List<String> values, Map<String, Integer> codesByKey, List<BitSet> rowsByCode) {
+            this.codes = codes;
+            this.values = values;
+            this.codesByKey = codesByKey;
+            this.rowsByCode = rowsByCode;
+        }
+
+        /**
+         * Returns an empty column, the code 0 being reserved for null values.
+         */
+        static DictionaryColumn empty() {
+            List<String> values = new ArrayList<>();
+            values.add(null);
+            List<BitSet> rowsByCode = new ArrayList<>();
+            rowsByCode.add(new BitSet());
+            return new DictionaryColumn(new int[0], values, new HashMap<>(), rowsByCode);
+        }
+
+        DictionaryColumn copy(int rowCount) {
+            List<BitSet> rows = new ArrayList<>(rowsByCode.size());
+            rowsByCode.forEach(bitSet -> rows.add((BitSet) bitSet.clone()));
+            return new DictionaryColumn(Arrays.copyOf(codes, rowCount), new ArrayList<>(values), new HashMap<>(codesByKey), rows);
+        }
+
+        void set(int row, String value) {
+            int code = value == null ? 0 : codesByKey.computeIfAbsent(key(value), key -> {
+                values.add(value);
+                rowsByCode.add(new BitSet());
+                return values.size() - 1;
+            });
+            codes[row] = code;
+            rowsByCode.get(code).set(row);
+        }
+
+        String value(int row) {
+            return values.get(codes[row]);
+        }
+
+        /**
+         * Returns the rows holding the given value, or null when there is no value to filter on.
+         */
+        BitSet rowsMatching(String value) {
+            if (value == null) {
+                return null;
+            }
+            Integer code = codesByKey.get(key(value));
+            return code != null ? rowsByCode.get(code) : NO_ROWS;
+        }
+
+        /**
+         * Counts the given rows holding each value, most frequent values first. Null values are not counted.
+         */
+        Map<String, Integer> counts(BitSet rows) {
+            List<Map.Entry<String, Integer>> counts = new ArrayList<>();
+            for (int code = 1; code < values.size(); code++) {
+                BitSet valueRows = (BitSet) rowsByCode.get(code).clone();
+                valueRows.and(rows);
+                int count = valueRows.cardinality();
+                if (count > 0) {
+                    counts.add(Map.entry(values.get(code), count));
+                }
+            }
+            counts.sort(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+
+            Map<String, Integer> sortedCounts = new LinkedHashMap<>();
+            counts.forEach(entry -> sortedCounts.put(entry.getKey(), entry.getValue()));
+            return sortedCounts;
+        }
+
+        private static String key(String value) {
+            return value.toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * The Row class holds the columns of one anime read back from a snapshot.
+     */
+    private static final class Row implements AnimeColumnsView {
+
+        private final Long id;
+        private final Integer episodeCount;
+        private final LocalDate startDate;
+        private final String subtype;
+        private final String status;
+        private final String ageRatingGuide;
+
+        private Row(Long id, Integer episodeCount, LocalDate startDate, String subtype, String status, String ageRatingGuide) {
+            this.id = id;
+            this.episodeCount = episodeCount;
+            this.startDate = startDate;
+            this.subtype = subtype;
+            this.status = status;
+            this.ageRatingGuide = ageRatingGuide;
+        }
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public Integer getEpisodeCount() {
+            return episodeCount;
+        }
+
+        @Override
+        public LocalDate getStartDate() {
+            return startDate;
+        }
+
+        @Override
+        public String getSubtype() {
+            return subtype;
+        }
+
+        @Override
+        public String getStatus() {
+            return status;
+        }
+
+        @Override
+        public String getAgeRatingGuide() {
+            return ageRatingGuide;
+        }
+    }
+}
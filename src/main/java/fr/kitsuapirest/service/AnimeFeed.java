@@ -0,0 +1,56 @@
+package fr.kitsuapirest.service;
+
+import java.time.LocalDate;
+
+/**
+ * The AnimeFeed enum lists the anime feeds fetched from Kitsu for the home page.
+ * The trending feed covers the current season and the upcoming feed the next one, following the Kitsu seasons:
+ * winter from December to February, counted in the following year, then spring, summer and fall.
+ * The feeds only request the anime attributes served by the application, without the relationships.
+ */
+public enum AnimeFeed {
+
+    TRENDING(0),
+    UPCOMING(3);
+
+    private static final String URL = "/anime?filter[seasonYear]=%d&filter[season]=%s&page[limit]=9&sort=-averageRating"
+            + "&fields[anime]=titles,synopsis,status,episodeCount,episodeLength,averageRating,startDate,endDate,posterImage,coverImage,"
+            + "subtype,ageRatingGuide,updatedAt";
+    private static final String[] SEASONS = {"winter", "spring", "summer", "fall"};
+
+    private final int monthsAhead;
+
+    AnimeFeed(int monthsAhead) {
+        this.monthsAhead = monthsAhead;
+    }
+
+    /**
+     * Returns the Kitsu URL of the feed on the given date, relative to the Kitsu base URL.
+     *
+     * @param today the current date.
+     * @return the URL of the feed.
+     */
+    public String getUrl(LocalDate today) {
+        LocalDate date = today.plusMonths(monthsAhead);
+        return String.format(URL, seasonYear(date), season(date));
+    }
+
+    /**
+     * Returns the season covered by the feed on the given date.
+     *
+     * @param today the current date.
+     * @return the season, such as 2023-spring.
+     */
+    public String getSeason(LocalDate today) {
+        LocalDate date = today.plusMonths(monthsAhead);
+        return seasonYear(date) + "-" + season(date);
+    }
+
+    private static String season(LocalDate date) {
+        return SEASONS[(date.getMonthValue() % 12) / 3];
+    }
+
+    private static int seasonYear(LocalDate date) {
+        return date.getMonthValue() == 12 ? date.getYear() + 1 : date.getYear();
+    }
+}
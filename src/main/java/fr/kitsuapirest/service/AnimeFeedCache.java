@@ -0,0 +1,262 @@
+package fr.kitsuapirest.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.kitsuapirest.ApiResponse.AnimeData;
+import fr.kitsuapirest.ApiResponse.ApiResponse;
+import fr.kitsuapirest.model.FeedSnapshot;
+import fr.kitsuapirest.repository.FeedSnapshotRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The AnimeFeedCache class keeps the last good version of each Kitsu feed, so that the home page never waits for Kitsu.
+ * The feeds are refreshed by a scheduled task before they expire. An expired feed is still served while it is
+ * refreshed in the background, and a failed refresh keeps the previous version.
+ * Only one refresh of a feed runs at a time: concurrent requests share the refresh in progress.
+ * Every successful fetch is stored as a snapshot, and the latest snapshots are loaded on startup, so that the feeds
+ * survive restarts and Kitsu outages. A feed older than its time to live is flagged as stale.
+ */
+@Component
+public class AnimeFeedCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnimeFeedCache.class);
+
+    private static final TypeReference<List<AnimeData>> ANIMES_TYPE = new TypeReference<>() {
+    };
+
+    private final KitsuClient kitsuClient;
+    private final FeedSnapshotRepository snapshotRepository;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final Duration snapshotRetention;
+    private final Map<AnimeFeed, FeedState> states = new EnumMap<>(AnimeFeed.class);
+    private final AtomicLong versions = new AtomicLong();
+
+    private final ExecutorService refreshExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "anime-feed-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public AnimeFeedCache(KitsuClient kitsuClient, FeedSnapshotRepository snapshotRepository, ObjectMapper objectMapper,
+                          MeterRegistry meterRegistry, @Value("${kodo.feeds.ttl:PT1H}") Duration ttl,
+                          @Value("${kodo.feeds.snapshot-retention:P7D}") Duration snapshotRetention) {
+        this.kitsuClient = kitsuClient;
+        this.snapshotRepository = snapshotRepository;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        this.snapshotRetention = snapshotRetention;
+
+        for (AnimeFeed feed : AnimeFeed.values()) {
+            String name = feed.name().toLowerCase();
+            FeedState state = new FeedState(Timer.builder("kodo.feeds.refresh")
+                    .description("Time spent fetching a feed from Kitsu")
+                    .tag("feed", name)
+                    .register(meterRegistry));
+            Gauge.builder("kodo.feeds.age", state, FeedState::ageSeconds)
+                    .description("Age of the cached feed, or -1 before its first fetch")
+                    .tag("feed", name)
+                    .baseUnit("seconds")
+                    .register(meterRegistry);
+            states.put(feed, state);
+        }
+    }
+
+    /**
+     * Returns the cached version of a feed.
+     * The first request of a feed waits for its fetch, later requests are served from the cache.
+     *
+     * @param feed the feed.
+     * @return the animes of the feed.
+     */
+    public List<AnimeData> get(AnimeFeed feed) {
+        FeedState state = states.get(feed);
+        Entry entry = state.entry;
+        if (entry == null) {
+            try {
+                return refresh(feed).join().animes;
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        if (entry.isExpired(ttl)) {
+            refresh(feed);
+        }
+        return entry.animes;
+    }
+
+    /**
+     * Tells whether the cached version of a feed is older than its time to live,
+     * which happens when Kitsu could not be reached for a while.
+     *
+     * @param feed the feed.
+     * @return true if the feed is stale.
+     */
+    public boolean isStale(AnimeFeed feed) {
+        Entry entry = states.get(feed).entry;
+        return entry != null && entry.isExpired(ttl);
+    }
+
+    /**
+     * Returns the version of the cached feed, which changes every time the feed is refreshed,
+     * so that the pages rendered from a feed can be cached until its next refresh.
+     *
+     * @param feed the feed.
+     * @return the version of the feed, or 0 before its first fetch.
+     */
+    public long getVersion(AnimeFeed feed) {
+        Entry entry = states.get(feed).entry;
+        return entry == null ? 0 : entry.version;
+    }
+
+    /**
+     * Loads the latest snapshot of every feed, before the first scheduled refresh.
+     */
+    @PostConstruct
+    public void hydrate() {
+        for (AnimeFeed feed : AnimeFeed.values()) {
+            try {
+                FeedSnapshot snapshot = snapshotRepository.findFirstByFeedOrderByFetchedAtDesc(feed).orElse(null);
+                if (snapshot != null) {
+                    states.get(feed).entry = new Entry(readAnimes(snapshot.getPayload()), snapshot.getFetchedAt().toEpochMilli(),
+                            versions.incrementAndGet());
+                    logger.info("Loaded the {} feed snapshot of {} fetched at {}", feed, snapshot.getSeason(), snapshot.getFetchedAt());
+                }
+            } catch (RuntimeException | JsonProcessingException e) {
+                logger.warn("Failed to load the {} feed snapshot: {}", feed, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Refreshes every feed before it expires.
+     */
+    @Scheduled(fixedDelayString = "${kodo.feeds.refresh-interval:PT15M}")
+    public void refreshAll() {
+        for (AnimeFeed feed : AnimeFeed.values()) {
+            refresh(feed);
+        }
+    }
+
+    /**
+     * Starts a refresh of the feed, unless one is already in progress.
+     *
+     * @param feed the feed.
+     * @return the refresh in progress, completed with the new version of the feed.
+     */
+    private CompletableFuture<Entry> refresh(AnimeFeed feed) {
+        FeedState state = states.get(feed);
+        while (true) {
+            CompletableFuture<Entry> running = state.refresh.get();
+            if (running != null) {
+                return running;
+            }
+            CompletableFuture<Entry> refresh = new CompletableFuture<>();
+            if (state.refresh.compareAndSet(null, refresh)) {
+                refreshExecutor.execute(() -> fetch(feed, state, refresh));
+                return refresh;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        refreshExecutor.shutdownNow();
+    }
+
+    private void fetch(AnimeFeed feed, FeedState state, CompletableFuture<Entry> refresh) {
+        Timer.Sample sample = Timer.start();
+        try {
+            LocalDate today = LocalDate.now();
+            ApiResponse response = kitsuClient.get(KitsuClient.Operation.FEED, feed.getUrl(today), ApiResponse.class);
+            List<AnimeData> animes = response == null || response.getData() == null ? List.of() : List.copyOf(response.getData());
+            Entry entry = new Entry(animes, System.currentTimeMillis(), versions.incrementAndGet());
+            state.entry = entry;
+            state.refresh.set(null);
+            refresh.complete(entry);
+            saveSnapshot(feed, feed.getSeason(today), entry);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to refresh the {} feed, serving the previous version: {}", feed, e.getMessage());
+            state.refresh.set(null);
+            refresh.completeExceptionally(e);
+        } finally {
+            sample.stop(state.refreshTimer);
+        }
+    }
+
+    private void saveSnapshot(AnimeFeed feed, String season, Entry entry) {
+        try {
+            Instant fetchedAt = Instant.ofEpochMilli(entry.fetchedAt);
+            snapshotRepository.save(new FeedSnapshot(feed, season, objectMapper.writeValueAsString(entry.animes), fetchedAt));
+            snapshotRepository.deleteByFeedAndFetchedAtBefore(feed, fetchedAt.minus(snapshotRetention));
+        } catch (RuntimeException | JsonProcessingException e) {
+            logger.warn("Failed to save the {} feed snapshot: {}", feed, e.getMessage());
+        }
+    }
+
+    private List<AnimeData> readAnimes(String payload) throws JsonProcessingException {
+        return List.copyOf(objectMapper.readValue(payload, ANIMES_TYPE));
+    }
+
+    /**
+     * The Entry class holds a version of a feed with the time it was fetched.
+     */
+    private static final class Entry {
+
+        private final List<AnimeData> animes;
+        private final long fetchedAt;
+        private final long version;
+
+        private Entry(List<AnimeData> animes, long fetchedAt, long version) {
+            this.animes = animes;
+            this.fetchedAt = fetchedAt;
+            this.version = version;
+        }
+
+        private boolean isExpired(Duration ttl) {
+            return System.currentTimeMillis() - fetchedAt >= ttl.toMillis();
+        }
+    }
+
+    /**
+     * The FeedState class holds the cached version of a feed and its refresh in progress.
+     */
+    private static final class FeedState {
+
+        private final Timer refreshTimer;
+        private final AtomicReference<CompletableFuture<Entry>> refresh = new AtomicReference<>();
+        private volatile Entry entry;
+
+        private FeedState(Timer refreshTimer) {
+            this.refreshTimer = refreshTimer;
+        }
+
+        private double ageSeconds() {
+            Entry current = entry;
+            return current == null ? -1 : (System.currentTimeMillis() - current.fetchedAt) / 1000.0;
+        }
+    }
+}
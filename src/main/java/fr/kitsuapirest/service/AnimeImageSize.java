@@ -0,0 +1,54 @@
+package fr.kitsuapirest.service;
+
+import java.util.Locale;
+
+/**
+ * The AnimeImageSize enum lists the sizes of the anime posters served by the application,
+ * matching the Kitsu poster sizes.
+ */
+public enum AnimeImageSize {
+
+    TINY(110),
+    SMALL(284),
+    LARGE(550),
+    ORIGINAL(0);
+
+    private final int width;
+
+    AnimeImageSize(int width) {
+        this.width = width;
+    }
+
+    /**
+     * Returns the width of the size.
+     *
+     * @return the width in pixels, or 0 for the original image.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the name of the size in the image URLs.
+     *
+     * @return the lower case name, such as small.
+     */
+    public String getName() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns the size with the given name.
+     *
+     * @param name the name of the size, in any case.
+     * @return the size, or null if there is none.
+     */
+    public static AnimeImageSize fromName(String name) {
+        for (AnimeImageSize size : values()) {
+            if (size.name().equalsIgnoreCase(name)) {
+                return size;
+            }
+        }
+        return null;
+    }
+}
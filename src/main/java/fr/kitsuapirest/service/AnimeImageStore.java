@@ -0,0 +1,362 @@
+package fr.kitsuapirest.service;
+
+import fr.kitsuapirest.event.AnimeCatalogChangedEvent;
+import fr.kitsuapirest.repository.AnimeRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.client.RestTemplate;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * The AnimeImageStore class keeps a local copy of the anime posters, so that the pages never load the full size
+ * posters from the Kitsu CDN.
+ * The poster of an anime is downloaded once, on its first request, and stored on disk with its tiny, small and large
+ * variants. Concurrent requests of a poster share its download. The stored posters of an anime are deleted when it
+ * is updated or deleted, and downloaded again on the next request.
+ * Only raster posters from the Kitsu media hosts are stored: the download is refused when the host is not allowed,
+ * when the poster is not a JPEG, PNG, WebP or GIF image, when it is larger than the size limit, or when its
+ * dimensions exceed the pixel limit, which is checked before the poster is decoded.
+ */
+@Component
+public class AnimeImageStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnimeImageStore.class);
+
+    private static final String ORIGINAL_GLOB = "original.{jpg,png,webp,gif}";
+    private static final String VARIANT_EXTENSION = ".jpg";
+    private static final List<MediaType> RASTER_TYPES = List.of(MediaType.IMAGE_JPEG, MediaType.IMAGE_PNG,
+            MediaType.parseMediaType("image/webp"), MediaType.IMAGE_GIF);
+
+    private final AnimeRepository animeRepository;
+    private final RestTemplate restTemplate;
+    private final Path directory;
+    private final Set<String> allowedHosts;
+    private final long maxBytes;
+    private final long maxPixels;
+    private final Counter downloads;
+    private final Map<Long, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+
+    public AnimeImageStore(AnimeRepository animeRepository, RestTemplate restTemplate, MeterRegistry meterRegistry,
+                           @Value("${kodo.images.dir:data/images}") String directory,
+                           @Value("${kodo.images.allowed-hosts:media.kitsu.io,media.kitsu.app}") String[] allowedHosts,
+                           @Value("${kodo.images.max-bytes:5242880}") long maxBytes,
+                           @Value("${kodo.images.max-pixels:16777216}") long maxPixels) {
+        this.animeRepository = animeRepository;
+        this.restTemplate = restTemplate;
+        this.directory = Paths.get(directory);
+        this.allowedHosts = Arrays.stream(allowedHosts)
+                .map(host -> host.trim().toLowerCase(Locale.ROOT))
+                .collect(Collectors.toUnmodifiableSet());
+        this.maxBytes = maxBytes;
+        this.maxPixels = maxPixels;
+        this.downloads = Counter.builder("kodo.images.downloads")
+                .description("Anime posters downloaded from Kitsu")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the stored poster of an anime, downloading it first if needed.
+     * A variant which could not be generated, because the poster format is not supported, falls back to the original.
+     *
+     * @param animeId the ID of the anime.
+     * @param size    the size of the poster.
+     * @return the poster file, or null if the anime has no poster.
+     */
+    public Path get(Long animeId, AnimeImageSize size) {
+        Path animeDirectory = directory.resolve(String.valueOf(animeId));
+        Path original = findOriginal(animeDirectory);
+        if (original == null) {
+            original = download(animeId, animeDirectory);
+            if (original == null) {
+                return null;
+            }
+        }
+        if (size == AnimeImageSize.ORIGINAL) {
+            return original;
+        }
+        Path variant = animeDirectory.resolve(size.getName() + VARIANT_EXTENSION);
+        return Files.exists(variant) ? variant : original;
+    }
+
+    /**
+     * Returns the version of a poster URL, added to the local poster URLs so that the browsers can cache them forever.
+     *
+     * @param image the Kitsu URL of the poster.
+     * @return the version of the poster.
+     */
+    public String version(String image) {
+        return image == null ? "0" : Integer.toHexString(image.hashCode());
+    }
+
+    /**
+     * Deletes the stored posters of the updated or deleted animes.
+     *
+     * @param event the catalog change.
+     */
+    @EventListener
+    public void onCatalogChanged(AnimeCatalogChangedEvent event) {
+        if (event.getType() == AnimeCatalogChangedEvent.Type.ADDED) {
+            return;
+        }
+        for (Long animeId : event.getAnimeIds()) {
+            try {
+                FileSystemUtils.deleteRecursively(directory.resolve(String.valueOf(animeId)));
+            } catch (IOException e) {
+                logger.warn("Failed to delete the stored posters of the anime {}: {}", animeId, e.getMessage());
+            }
+        }
+    }
+
+    private Path download(Long animeId, Path animeDirectory) {
+        CompletableFuture<Path> download = new CompletableFuture<>();
+        CompletableFuture<Path> running = inFlight.putIfAbsent(animeId, download);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        try {
+            Path original = findOriginal(animeDirectory);
+            if (original == null) {
+                String image = animeRepository.findImageById(animeId).orElse(null);
+                original = image == null ? null : store(image, animeDirectory);
+            }
+            download.complete(original);
+            return original;
+        } catch (RuntimeException e) {
+            download.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(animeId, download);
+        }
+    }
+
+    /**
+     * Downloads a poster and stores it with its variants.
+     * The original is written last, since its presence marks the poster as stored.
+     *
+     * @param image          the Kitsu URL of the poster.
+     * @param animeDirectory the directory of the anime posters.
+     * @return the stored original, or null if the poster was refused.
+     */
+    private Path store(String image, Path animeDirectory) {
+        URI uri = allowedUri(image);
+        if (uri == null) {
+            logger.warn("Refused to download the poster {} from a host which is not allowed", image);
+            return null;
+        }
+        Download download = restTemplate.execute(uri, HttpMethod.GET,
+                request -> request.getHeaders().setAccept(RASTER_TYPES), this::readDownload);
+        if (download == null || download.refusal != null) {
+            logger.warn("Refused to store the poster {}: {}", image, download == null ? "empty response" : download.refusal);
+            return null;
+        }
+        downloads.increment();
+
+        try {
+            long pixels = pixels(download.bytes);
+            if (pixels > maxPixels) {
+                logger.warn("Refused to store the poster {}: more than {} pixels", image, maxPixels);
+                return null;
+            }
+            Files.createDirectories(animeDirectory);
+            BufferedImage poster = pixels < 0 ? null : ImageIO.read(new ByteArrayInputStream(download.bytes));
+            if (poster == null) {
+                logger.info("Unsupported poster format for {}, serving the original for every size", image);
+            } else {
+                for (AnimeImageSize size : AnimeImageSize.values()) {
+                    if (size != AnimeImageSize.ORIGINAL) {
+                        writeVariant(poster, size, animeDirectory.resolve(size.getName() + VARIANT_EXTENSION));
+                    }
+                }
+            }
+            Path original = animeDirectory.resolve("original." + download.extension);
+            write(download.bytes, original);
+            return original;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to store the poster " + image, e);
+        }
+    }
+
+    /**
+     * Parses a poster URL, keeping it only if it points to an allowed host over HTTP or HTTPS.
+     *
+     * @param image the URL of the poster.
+     * @return the URL, or null if it is invalid or its host is not allowed.
+     */
+    private URI allowedUri(String image) {
+        try {
+            URI uri = new URI(image);
+            boolean web = "https".equalsIgnoreCase(uri.getScheme()) || "http".equalsIgnoreCase(uri.getScheme());
+            return web && uri.getHost() != null && allowedHosts.contains(uri.getHost().toLowerCase(Locale.ROOT)) ? uri : null;
+        } catch (URISyntaxException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads a poster response, stopping as soon as it exceeds the size limit.
+     *
+     * @param response the poster response.
+     * @return the downloaded poster, or a refusal.
+     * @throws IOException if the response cannot be read.
+     */
+    private Download readDownload(ClientHttpResponse response) throws IOException {
+        String extension = extension(response.getHeaders().getContentType());
+        if (extension == null) {
+            return Download.refused("not a raster image (" + response.getHeaders().getContentType() + ")");
+        }
+        if (response.getHeaders().getContentLength() > maxBytes) {
+            return Download.refused("larger than " + maxBytes + " bytes");
+        }
+
+        try (InputStream body = response.getBody()) {
+            byte[] bytes = body.readNBytes((int) Math.min(maxBytes + 1, Integer.MAX_VALUE - 8));
+            if (bytes.length > maxBytes) {
+                return Download.refused("larger than " + maxBytes + " bytes");
+            }
+            return bytes.length == 0 ? Download.refused("empty response") : new Download(bytes, extension, null);
+        }
+    }
+
+    /**
+     * Reads the dimensions of a poster from its header, without decoding it.
+     *
+     * @param bytes the poster.
+     * @return the number of pixels of the poster, or -1 if its format is not supported.
+     * @throws IOException if the header cannot be read.
+     */
+    private static long pixels(byte[] bytes) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+            Iterator<ImageReader> readers = input == null ? Collections.emptyIterator() : ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return -1;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                return (long) reader.getWidth(0) * reader.getHeight(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static void writeVariant(BufferedImage poster, AnimeImageSize size, Path target) throws IOException {
+        int width = Math.min(size.getWidth(), poster.getWidth());
+        int height = Math.max(1, Math.round(poster.getHeight() * (width / (float) poster.getWidth())));
+
+        BufferedImage variant = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = variant.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(poster, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+
+        Path temporary = Files.createTempFile(target.getParent(), size.getName(), ".tmp");
+        ImageIO.write(variant, "jpg", temporary.toFile());
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void write(byte[] bytes, Path target) throws IOException {
+        Path temporary = Files.createTempFile(target.getParent(), "original", ".tmp");
+        Files.write(temporary, bytes);
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Path findOriginal(Path animeDirectory) {
+        if (!Files.isDirectory(animeDirectory)) {
+            return null;
+        }
+        try (DirectoryStream<Path> originals = Files.newDirectoryStream(animeDirectory, ORIGINAL_GLOB)) {
+            for (Path original : originals) {
+                if (!original.getFileName().toString().endsWith(".tmp")) {
+                    return original;
+                }
+            }
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the file extension of a raster poster type.
+     *
+     * @param contentType the content type of the poster.
+     * @return the extension, or null if the type is not an allowed raster type.
+     */
+    private static String extension(MediaType contentType) {
+        if (contentType == null || !"image".equals(contentType.getType())) {
+            return null;
+        }
+        return switch (contentType.getSubtype().toLowerCase(Locale.ROOT)) {
+            case "jpeg", "pjpeg" -> "jpg";
+            case "png", "webp", "gif" -> contentType.getSubtype().toLowerCase(Locale.ROOT);
+            default -> null;
+        };
+    }
+
+    /**
+     * The Download class holds a downloaded poster with its file extension, or the reason it was refused.
+     */
+    private static final class Download {
+
+        private final byte[] bytes;
+        private final String extension;
+        private final String refusal;
+
+        private Download(byte[] bytes, String extension, String refusal) {
+            this.bytes = bytes;
+            this.extension = extension;
+            this.refusal = refusal;
+        }
+
+        private static Download refused(String refusal) {
+            return new Download(null, null, refusal);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package fr.kitsuapirest.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import fr.kitsuapirest.dto.AnimeCard;
+import fr.kitsuapirest.dto.AnimeQuery;
+import fr.kitsuapirest.event.AnimeCatalogChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Page;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * The AnimeQueryCache class caches the pages of anime cards returned for the catalog queries.
+ * Entries are keyed by the catalog version along with the normalized query, so that a page computed while
+ * the catalog changes can never be served after the change. The cache is also emptied on every change.
+ * The cache is bounded by the total number of cached cards, and its statistics are published as metrics.
+ * The pages are computed by the requesting thread outside of the cache's map locks, so that a virtual thread
+ * blocked on the database is never pinned to its carrier thread by the cache.
+ */
+@Component
+public class AnimeQueryCache {
+
+    private final AsyncCache<Key, Page<AnimeCard>> cache;
+    private final CatalogVersion catalogVersion;
+
+    public AnimeQueryCache(CatalogVersion catalogVersion, MeterRegistry meterRegistry,
+                           @Value("${kodo.cache.anime-queries.max-weight:20000}") long maxWeight) {
+        this.catalogVersion = catalogVersion;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher((Key key, Page<AnimeCard> page) -> 1 + page.getNumberOfElements())
+                .recordStats()
+                .buildAsync();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "animeQueries");
+    }
+
+    /**
+     * Returns the cached page of the query, computing it if needed.
+     * Concurrent requests for the same missing page wait for a single computation, which is run by the first
+     * request once its pending page has been registered in the cache. A failed computation is not cached.
+     *
+     * @param query  the catalog query.
+     * @param loader computes the page of the query.
+     * @return the page of anime cards.
+     */
+    public Page<AnimeCard> get(AnimeQuery query, Function<AnimeQuery, Page<AnimeCard>> loader) {
+        CompletableFuture<Page<AnimeCard>> pending = new CompletableFuture<>();
+        CompletableFuture<Page<AnimeCard>> page = cache.get(new Key(catalogVersion.current(), query),
+                (key, executor) -> pending);
+        if (page == pending) {
+            try {
+                pending.complete(loader.apply(query));
+            } catch (RuntimeException | Error e) {
+                pending.completeExceptionally(e);
+                throw e;
+            }
+        }
+
+        try {
+            return page.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    /**
+     * Empties the cache once a catalog change has been applied.
+     *
+     * @param event the catalog change event.
+     */
+    @EventListener
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onCatalogChanged(AnimeCatalogChangedEvent event) {
+        cache.synchronous().invalidateAll();
+    }
+
+    /**
+     * The Key class identifies a query on a version of the catalog.
+     */
+    private static final class Key {
+
+        private final long catalogVersion;
+        private final AnimeQuery query;
+
+        private Key(long catalogVersion, AnimeQuery query) {
+            this.catalogVersion = catalogVersion;
+            this.query = query;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return catalogVersion == key.catalogVersion && query.equals(key.query);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(catalogVersion, query);
+        }
+    }
+}
@@ -0,0 +1,432 @@
+package fr.kitsuapirest.service;
+
+import fr.kitsuapirest.dto.AnimeQuery;
+import fr.kitsuapirest.event.AnimeCatalogChangedEvent;
+import fr.kitsuapirest.model.Anime;
+import fr.kitsuapirest.repository.AnimeRepository;
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.cjk.CJKAnalyzer;
+import org.apache.lucene.analysis.miscellaneous.PerFieldAnalyzerWrapper;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.DisjunctionMaxQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.MMapDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The AnimeSearchIndex class maintains an embedded Lucene full-text index over the anime titles and synopses.
+ * The index is rebuilt at startup and kept up to date from the catalog change events.
+ * The changes received before the index is built are queued and applied once it is built, so that a change made while
+ * the rebuild reads the table is not undone by the rows it read before.
+ */
+@Component
+public class AnimeSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnimeSearchIndex.class);
+
+    private static final int REBUILD_BATCH_SIZE = 500;
+
+    private static final String ID = "id";
+    private static final String ID_SORT = "idSort";
+    private static final String TITLE = "title";
+    private static final String TITLE_EN_JP = "titleEnJp";
+    private static final String TITLE_JA_JP = "titleJaJp";
+    private static final String SYNOPSIS = "synopsis";
+    private static final String SUBTYPE = "subtype";
+    private static final String STATUS = "status";
+    private static final String AGE_RATING_GUIDE = "ageRatingGuide";
+    private static final String START_YEAR = "startYear";
+    private static final String START_DATE = "startDate";
+    private static final String EPISODE_COUNT = "episodeCount";
+
+    private final AnimeRepository animeRepository;
+    private final Path indexPath;
+    private final Analyzer analyzer;
+
+    private Directory directory;
+    private IndexWriter indexWriter;
+    private SearcherManager searcherManager;
+    private volatile boolean ready;
+    private final Lock changeLock = new ReentrantLock();
+    private final Queue<AnimeCatalogChangedEvent> pendingChanges = new ArrayDeque<>();
+
+    public AnimeSearchIndex(AnimeRepository animeRepository,
+                            @Value("${kodo.search.index-dir:data/search-index}") String indexDir) {
+        this.animeRepository = animeRepository;
+        this.indexPath = Paths.get(indexDir);
+        this.analyzer = new PerFieldAnalyzerWrapper(new StandardAnalyzer(), Map.of(TITLE_JA_JP, new CJKAnalyzer()));
+    }
+
+    /**
+     * Rebuilds the index from the anime table once the application has started.
+     *
+     * @throws IOException if the index directory cannot be written.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() throws IOException {
+        long start = System.currentTimeMillis();
+
+        Files.createDirectories(indexPath);
+        directory = new MMapDirectory(indexPath);
+        indexWriter = new IndexWriter(directory, new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE));
+
+        Pageable pageable = PageRequest.of(0, REBUILD_BATCH_SIZE, org.springframework.data.domain.Sort.by(ID));
+        long lastId = 0;
+        Slice<Anime> batch;
+        do {
+            batch = animeRepository.findByIdGreaterThan(lastId, pageable);
+            for (Anime anime : batch) {
+                indexWriter.updateDocument(idTerm(anime.getId()), toDocument(anime));
+                lastId = anime.getId();
+            }
+        } while (batch.hasNext());
+
+        changeLock.lock();
+        try {
+            AnimeCatalogChangedEvent event;
+            while ((event = pendingChanges.poll()) != null) {
+                apply(event);
+            }
+            indexWriter.commit();
+            searcherManager = new SearcherManager(indexWriter, null);
+            ready = true;
+        } finally {
+            changeLock.unlock();
+        }
+
+        logger.info("Anime search index built with {} documents in {} ms",
+                indexWriter.getDocStats().numDocs, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Applies a catalog change to the index, or queues it until the index is built.
+     * The change is applied before the catalog version is bumped.
+     *
+     * @param event the catalog change event.
+     */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onCatalogChanged(AnimeCatalogChangedEvent event) {
+        changeLock.lock();
+        try {
+            if (!ready) {
+                pendingChanges.add(event);
+                return;
+            }
+            apply(event);
+            searcherManager.maybeRefreshBlocking();
+        } catch (IOException e) {
+            logger.error("Failed to update the anime search index for {}", event.getAnimeIds(), e);
+        } finally {
+            changeLock.unlock();
+        }
+    }
+
+    private void apply(AnimeCatalogChangedEvent event) throws IOException {
+        if (event.getType() == AnimeCatalogChangedEvent.Type.DELETED) {
+            for (Long animeId : event.getAnimeIds()) {
+                indexWriter.deleteDocuments(idTerm(animeId));
+            }
+        } else {
+            for (Anime anime : animeRepository.findAllById(event.getAnimeIds())) {
+                indexWriter.updateDocument(idTerm(anime.getId()), toDocument(anime));
+            }
+        }
+    }
+
+    /**
+     * Indicates whether the index has been built and can serve searches.
+     *
+     * @return true if the index is ready.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Searches the index for the title text of the given query.
+     * Results are ranked by relevance unless the query asks for an explicit sort.
+     *
+     * @param query the catalog query.
+     * @return the ids of the requested page of results, along with the total number of hits.
+     */
+    public SearchHits search(AnimeQuery query) {
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                Query luceneQuery = buildQuery(query);
+                int totalHits = searcher.count(luceneQuery);
+
+                long offset = (long) query.getPage() * query.getSize();
+                if (offset >= totalHits) {
+                    return new SearchHits(List.of(), totalHits);
+                }
+                int from = (int) offset;
+                int to = Math.min(from + query.getSize(), totalHits);
+
+                Sort sort = toLuceneSort(query);
+                TopDocs topDocs = sort == null ? searcher.search(luceneQuery, to) : searcher.search(luceneQuery, to, sort);
+
+                StoredFields storedFields = searcher.storedFields();
+                List<Long> animeIds = new ArrayList<>();
+                ScoreDoc[] scoreDocs = topDocs.scoreDocs;
+                for (int i = from; i < scoreDocs.length; i++) {
+                    animeIds.add(Long.valueOf(storedFields.document(scoreDocs[i].doc).get(ID)));
+                }
+
+                return new SearchHits(animeIds, totalHits);
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to search the anime index", e);
+        }
+    }
+
+    /**
+     * Returns the IDs of every anime matching the title text, whatever the other filters of the query.
+     *
+     * @param title the title text.
+     * @return the IDs of the matching animes, in no particular order.
+     */
+    public List<Long> findAllIds(String title) {
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                Query luceneQuery = buildQuery(new AnimeQuery(title, null, null, null, null, null, 0, 1));
+                int totalHits = searcher.count(luceneQuery);
+                if (totalHits == 0) {
+                    return List.of();
+                }
+
+                StoredFields storedFields = searcher.storedFields();
+                List<Long> animeIds = new ArrayList<>(totalHits);
+                for (ScoreDoc scoreDoc : searcher.search(luceneQuery, totalHits).scoreDocs) {
+                    animeIds.add(Long.valueOf(storedFields.document(scoreDoc.doc).get(ID)));
+                }
+                return animeIds;
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to search the anime index", e);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        changeLock.lock();
+        try {
+            ready = false;
+            if (searcherManager != null) {
+                searcherManager.close();
+            }
+            if (indexWriter != null) {
+                indexWriter.close();
+            }
+            if (directory != null) {
+                directory.close();
+            }
+        } finally {
+            changeLock.unlock();
+        }
+    }
+
+    private Document toDocument(Anime anime) {
+        Document document = new Document();
+        document.add(new StringField(ID, anime.getId().toString(), Field.Store.YES));
+        document.add(new NumericDocValuesField(ID_SORT, anime.getId()));
+
+        addText(document, TITLE, anime.getTitle());
+        addText(document, TITLE_EN_JP, anime.getTitleEnJp());
+        addText(document, TITLE_JA_JP, anime.getTitleJaJp());
+        addText(document, SYNOPSIS, anime.getSynopsis());
+
+        if (anime.getSubtype() != null) {
+            document.add(new StringField(SUBTYPE, anime.getSubtype().toLowerCase(Locale.ROOT), Field.Store.NO));
+        }
+        if (anime.getStatus() != null) {
+            document.add(new StringField(STATUS, anime.getStatus().toLowerCase(Locale.ROOT), Field.Store.NO));
+        }
+        if (anime.getAgeRatingGuide() != null) {
+            document.add(new StringField(AGE_RATING_GUIDE, anime.getAgeRatingGuide().toLowerCase(Locale.ROOT), Field.Store.NO));
+        }
+        if (anime.getStartDate() != null) {
+            document.add(new NumericDocValuesField(START_DATE, anime.getStartDate().toEpochDay()));
+            document.add(new StringField(START_YEAR, Integer.toString(anime.getStartDate().getYear()), Field.Store.NO));
+        }
+        if (anime.getEpisodeCount() != null) {
+            document.add(new NumericDocValuesField(EPISODE_COUNT, anime.getEpisodeCount()));
+        }
+
+        return document;
+    }
+
+    private void addText(Document document, String field, String value) {
+        if (value != null) {
+            document.add(new TextField(field, value, Field.Store.NO));
+        }
+    }
+
+    private Query buildQuery(AnimeQuery query) {
+        String text = query.getTitle();
+
+        List<Query> fieldQueries = new ArrayList<>();
+        addFieldQuery(fieldQueries, TITLE, text, true, 3.0f);
+        addFieldQuery(fieldQueries, TITLE_EN_JP, text, true, 2.5f);
+        addFieldQuery(fieldQueries, TITLE_JA_JP, text, false, 2.0f);
+        addFieldQuery(fieldQueries, SYNOPSIS, text, false, 1.0f);
+
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        builder.add(fieldQueries.isEmpty() ? new MatchNoDocsQuery() : new DisjunctionMaxQuery(fieldQueries, 0.1f),
+                BooleanClause.Occur.MUST);
+        if (query.getSubtype() != null) {
+            builder.add(new TermQuery(new Term(SUBTYPE, query.getSubtype().toLowerCase(Locale.ROOT))), BooleanClause.Occur.FILTER);
+        }
+        if (query.getStatus() != null) {
+            builder.add(new TermQuery(new Term(STATUS, query.getStatus().toLowerCase(Locale.ROOT))), BooleanClause.Occur.FILTER);
+        }
+        if (query.getAgeRatingGuide() != null) {
+            builder.add(new TermQuery(new Term(AGE_RATING_GUIDE, query.getAgeRatingGuide().toLowerCase(Locale.ROOT))), BooleanClause.Occur.FILTER);
+        }
+        if (query.getStartYear() != null) {
+            builder.add(new TermQuery(new Term(START_YEAR, query.getStartYear().toString())), BooleanClause.Occur.FILTER);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Adds a query requiring every token of the text in the given field.
+     * When prefix is true the last token also matches as a prefix, so that partially typed words are found.
+     */
+    private void addFieldQuery(List<Query> fieldQueries, String field, String text, boolean prefix, float boost) {
+        List<String> tokens = analyze(field, text);
+        if (tokens.isEmpty()) {
+            return;
+        }
+
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        for (int i = 0; i < tokens.size(); i++) {
+            Term term = new Term(field, tokens.get(i));
+            Query tokenQuery = new TermQuery(term);
+            if (prefix && i == tokens.size() - 1) {
+                tokenQuery = new BooleanQuery.Builder()
+                        .add(tokenQuery, BooleanClause.Occur.SHOULD)
+                        .add(new PrefixQuery(term), BooleanClause.Occur.SHOULD)
+                        .build();
+            }
+            builder.add(tokenQuery, BooleanClause.Occur.MUST);
+        }
+        fieldQueries.add(new BoostQuery(builder.build(), boost));
+    }
+
+    private List<String> analyze(String field, String text) {
+        List<String> tokens = new ArrayList<>();
+        try (TokenStream stream = analyzer.tokenStream(field, text)) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                tokens.add(term.toString());
+            }
+            stream.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return tokens;
+    }
+
+    /**
+     * Translates the sort of the catalog query into a Lucene sort, or returns null to sort by relevance.
+     * Missing values sort like SQL nulls: first in ascending order and last in descending order.
+     */
+    private Sort toLuceneSort(AnimeQuery query) {
+        if (query.getSortBy() == null) {
+            return null;
+        }
+
+        List<SortField> sortFields = new ArrayList<>();
+        for (org.springframework.data.domain.Sort.Order order : query.getSort()) {
+            String field = ID.equals(order.getProperty()) ? ID_SORT : order.getProperty();
+            SortField sortField = new SortField(field, SortField.Type.LONG, order.isDescending());
+            sortField.setMissingValue(Long.MIN_VALUE);
+            sortFields.add(sortField);
+        }
+        return new Sort(sortFields.toArray(new SortField[0]));
+    }
+
+    private static Term idTerm(Long animeId) {
+        return new Term(ID, animeId.toString());
+    }
+
+    /**
+     * The SearchHits class holds one page of search results.
+     */
+    public static class SearchHits {
+
+        private final List<Long> animeIds;
+        private final long totalHits;
+
+        public SearchHits(List<Long> animeIds, long totalHits) {
+            this.animeIds = animeIds;
+            this.totalHits = totalHits;
+        }
+
+        public List<Long> getAnimeIds() {
+            return animeIds;
+        }
+
+        public long getTotalHits() {
+            return totalHits;
+        }
+    }
+}
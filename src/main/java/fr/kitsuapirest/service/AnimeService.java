@@ -1,19 +1,45 @@
 package fr.kitsuapirest.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import fr.kitsuapirest.ApiResponse.AnimeData;
-import fr.kitsuapirest.ApiResponse.ApiResponse;
+import fr.kitsuapirest.dto.AnimeCard;
+import fr.kitsuapirest.dto.AnimeFacets;
+import fr.kitsuapirest.dto.AnimeQuery;
+import fr.kitsuapirest.dto.AnimeSuggestion;
+import fr.kitsuapirest.dto.AnimeTitleView;
+import fr.kitsuapirest.dto.KeysetCursor;
+import fr.kitsuapirest.dto.KeysetPage;
+import fr.kitsuapirest.event.AnimeCatalogChangedEvent;
 import fr.kitsuapirest.model.Anime;
-import fr.kitsuapirest.model.Rating;
 import fr.kitsuapirest.repository.AnimeRepository;
+import fr.kitsuapirest.repository.AnimeSpecifications;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Collections;
-import java.util.Comparator;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * The AnimeService class handles operations related to anime data.
@@ -21,78 +47,181 @@ import java.util.stream.Collectors;
 @Service
 public class AnimeService {
 
+    public static final int MAX_SUGGESTIONS = 20;
+
+    private static final int BACKFILL_BATCH_SIZE = 500;
+
     @Autowired
     private AnimeRepository animeRepository;
 
     @Autowired
-    private RestTemplate restTemplate;
+    private AnimeFeedCache feedCache;
+
+    @Autowired
+    private AnimeSearchIndex searchIndex;
+
+    @Autowired
+    private AnimeSuggestIndex suggestIndex;
+
+    @Autowired
+    private AnimeColumnStore columnStore;
+
+    @Autowired
+    private AnimeQueryCache queryCache;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ObjectMapper objectMapper;
 
     /**
-     * Retrieves a list of trending animes.
+     * Retrieves a list of trending animes, served from the feed cache.
      *
      * @return a list of trending AnimeData.
      */
     public List<AnimeData> getTrendingAnimes() {
-        String trendingAnimesUrl = "https://kitsu.io/api/edge/anime?filter[seasonYear]=2023&filter[season]=spring&page[limit]=9&sort=-averageRating";
-        ApiResponse response = restTemplate.getForObject(trendingAnimesUrl, ApiResponse.class);
-        return response.getData();
+        return feedCache.get(AnimeFeed.TRENDING);
     }
 
     /**
-     * Retrieves a list of upcoming animes.
+     * Retrieves a list of upcoming animes, served from the feed cache.
      *
      * @return a list of upcoming AnimeData.
      */
     public List<AnimeData> getUpcomingAnimes() {
-        String upcomingAnimesUrl = "https://kitsu.io/api/edge/anime?filter[seasonYear]=2023&filter[season]=summer&page[limit]=9&sort=-averageRating";
-        ApiResponse response = restTemplate.getForObject(upcomingAnimesUrl, ApiResponse.class);
-        return response.getData();
+        return feedCache.get(AnimeFeed.UPCOMING);
     }
 
     /**
-     * Retrieves a list of all animes with optional filtering and sorting.
+     * Tells whether a feed is served from an old version because Kitsu could not be reached.
      *
-     * @param parameters the query parameters for filtering and sorting.
-     * @return a list of filtered and sorted Anime objects.
+     * @param feed the feed.
+     * @return true if the feed is stale.
      */
-    public List<Anime> getAllAnimes(Map<String, String> parameters) {
-        List<Anime> animes = animeRepository.findAll();
+    public boolean isFeedStale(AnimeFeed feed) {
+        return feedCache.isStale(feed);
+    }
 
-        String title = parameters.get("title");
-        if (title != null && !title.isEmpty()) {
-            animes = animes.stream()
-                    .filter(anime -> anime.getTitle().toLowerCase().contains(title.toLowerCase()))
-                    .collect(Collectors.toList());
-        }
+    /**
+     * Returns the version of a feed, which changes every time the feed is refreshed.
+     *
+     * @param feed the feed.
+     * @return the version of the feed.
+     */
+    public long getFeedVersion(AnimeFeed feed) {
+        return feedCache.getVersion(feed);
+    }
 
-        String subtype = parameters.get("subtype");
-        if (subtype != null && !subtype.isEmpty()) {
-            animes = animes.stream()
-                    .filter(anime -> anime.getSubtype().equalsIgnoreCase(subtype))
-                    .collect(Collectors.toList());
-        }
+    /**
+     * Retrieves a page of animes with optional filtering and sorting.
+     * Title searches are served by the full-text index and ranked by relevance unless a sort is requested.
+     * Other queries are served by the in-memory column store when it is enabled, or by the database otherwise.
+     *
+     * @param parameters the query parameters for filtering, sorting and paging.
+     * @return a page of filtered and sorted Anime objects.
+     */
+    public Page<Anime> getAllAnimes(Map<String, String> parameters) {
+        return findPage(AnimeQuery.fromParameters(parameters), this::findAllInOrder, animeRepository::findAll);
+    }
 
-        String sortBy = parameters.get("sortBy");
-        if (sortBy != null && !sortBy.isEmpty()) {
-            if (sortBy.equals("oldest")) {
-                Collections.sort(animes, Comparator.comparing(Anime::getStartDate));
-            } else if (sortBy.equals("newest")) {
-                Collections.sort(animes, Comparator.comparing(Anime::getStartDate).reversed());
-            } else if (sortBy.equals("lowest")) {
-                Collections.sort(animes, Comparator.comparingInt(Anime::getEpisodeCount));
-            } else if (sortBy.equals("highest")) {
-                Collections.sort(animes, Comparator.comparingInt(Anime::getEpisodeCount).reversed());
+    /**
+     * Retrieves a page of anime cards with optional filtering and sorting.
+     * The cards are selected by DTO queries that never read the synopsis, only its excerpt,
+     * and the pages are cached until the catalog changes.
+     *
+     * @param parameters the query parameters for filtering, sorting and paging.
+     * @return a page of filtered and sorted AnimeCard objects.
+     */
+    public Page<AnimeCard> getAnimeCards(Map<String, String> parameters) {
+        return queryCache.get(AnimeQuery.fromParameters(parameters),
+                query -> findPage(query, this::findCardsInOrder, animeRepository::findCards));
+    }
+
+    /**
+     * Writes every anime matching the filters as a JSON array.
+     * The animes are read from a database cursor and serialized one at a time,
+     * so the memory used does not depend on the number of animes.
+     *
+     * @param parameters   the query parameters for filtering and sorting, paging parameters are ignored.
+     * @param outputStream the stream to write the JSON array to, it is left open.
+     * @throws IOException if the output stream cannot be written.
+     */
+    @Transactional(readOnly = true)
+    public void exportAnimes(Map<String, String> parameters, OutputStream outputStream) throws IOException {
+        AnimeQuery query = AnimeQuery.fromParameters(parameters);
+
+        try (Stream<Anime> animes = animeRepository.streamAnimes(AnimeSpecifications.matching(query), query.getSort());
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartArray();
+
+            Iterator<Anime> iterator = animes.iterator();
+            while (iterator.hasNext()) {
+                generator.writeObject(iterator.next());
             }
+
+            generator.writeEndArray();
         }
+    }
 
-        String status = parameters.get("status");
-        if (status != null && !status.isEmpty()) {
-            animes = animes.stream()
-                    .filter(anime -> anime.getStatus().equalsIgnoreCase(status))
-                    .collect(Collectors.toList());
+    /**
+     * Retrieves a page of animes using keyset pagination.
+     * The page starts after the position encoded in the cursor parameter, so that every page costs the same
+     * and rows inserted meanwhile do not shift the following pages.
+     *
+     * @param parameters the query parameters for filtering, sorting and paging, including the cursor.
+     * @return the page of animes along with the cursor of the next page.
+     * @throws IllegalArgumentException if the cursor is invalid or was issued for another sort.
+     */
+    public KeysetPage<Anime> scrollAnimes(Map<String, String> parameters) {
+        return scroll(parameters,
+                (specification, query) -> animeRepository.findBy(specification, fluentQuery -> fluentQuery
+                        .sortBy(query.getSort())
+                        .limit(query.getSize() + 1)
+                        .all()),
+                (query, anime) -> cursorAfter(query, anime.getId(), anime.getStartDate(), anime.getEpisodeCount()));
+    }
+
+    /**
+     * Retrieves a page of anime cards using keyset pagination.
+     *
+     * @param parameters the query parameters for filtering, sorting and paging, including the cursor.
+     * @return the page of anime cards along with the cursor of the next page.
+     * @throws IllegalArgumentException if the cursor is invalid or was issued for another sort.
+     */
+    public KeysetPage<AnimeCard> scrollAnimeCards(Map<String, String> parameters) {
+        return scroll(parameters,
+                (specification, query) -> animeRepository.findCards(specification, query.getSort(), query.getSize() + 1),
+                (query, card) -> cursorAfter(query, card.getId(), card.getStartDate(), card.getEpisodeCount()));
+    }
+
+    /**
+     * Counts the animes matching each filter value for the given query, from the bitmaps of the column store.
+     * The title filter is resolved by the full-text index.
+     *
+     * @param parameters the query parameters for filtering.
+     * @return the facet counts, or null while the indexes are being built.
+     */
+    public AnimeFacets getAnimeFacets(Map<String, String> parameters) {
+        AnimeQuery query = AnimeQuery.fromParameters(parameters);
+        if (!columnStore.isBuilt() || (query.getTitle() != null && !searchIndex.isReady())) {
+            return null;
         }
 
-        return animes;
+        List<Long> titleIds = query.getTitle() != null ? searchIndex.findAllIds(query.getTitle()) : null;
+        return columnStore.facets(query, titleIds);
+    }
+
+    /**
+     * Retrieves title completions for the search box.
+     *
+     * @param text  the text typed by the user.
+     * @param limit the maximum number of suggestions, capped at MAX_SUGGESTIONS.
+     * @return the suggestions, most popular first.
+     */
+    public List<AnimeSuggestion> suggestAnimes(String text, int limit) {
+        return suggestIndex.suggest(text, Math.min(limit, MAX_SUGGESTIONS));
     }
 
     /**
@@ -112,15 +241,137 @@ public class AnimeService {
      */
     public void deleteAnime(Long id) {
         animeRepository.deleteById(id);
+        eventPublisher.publishEvent(AnimeCatalogChangedEvent.deleted(this, id));
     }
 
     /**
-     * Retrieves an anime by its title.
+     * Retrieves an anime by its title. When several animes share the title, the oldest one is returned.
      *
      * @param anime the title of the anime.
      * @return the Anime object, or null if not found.
      */
     public Anime getAnimeByTitle(String anime) {
-        return animeRepository.findByTitle(anime);
+        return animeRepository.findFirstByTitleOrderByIdAsc(anime);
+    }
+
+    /**
+     * Retrieves the IDs of the animes with the given titles, in a single query on the indexed title column.
+     * When several animes share a title, the oldest one is kept.
+     *
+     * @param titles the titles of the animes.
+     * @return the anime IDs by title, without the titles not found.
+     */
+    public Map<String, Long> getAnimeIdsByTitles(Collection<String> titles) {
+        Set<String> distinctTitles = titles.stream().filter(Objects::nonNull).collect(Collectors.toSet());
+        if (distinctTitles.isEmpty()) {
+            return Map.of();
+        }
+        return animeRepository.findByTitleIn(distinctTitles).stream()
+                .collect(Collectors.toMap(AnimeTitleView::getTitle, AnimeTitleView::getId, Math::min));
+    }
+
+    /**
+     * Fills in the synopsis excerpts of the animes saved before the excerpt column existed.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillSynopsisExcerpts() {
+        Slice<Anime> batch;
+        do {
+            batch = animeRepository.findBySynopsisExcerptIsNullAndSynopsisIsNotNull(PageRequest.of(0, BACKFILL_BATCH_SIZE));
+            batch.forEach(Anime::updateSynopsisExcerpt);
+            animeRepository.saveAll(batch.getContent());
+        } while (batch.hasNext());
+    }
+
+    /**
+     * Runs a catalog query on the full-text index, the column store or the database, whichever can serve it.
+     *
+     * @param query               the catalog query.
+     * @param findByIds           loads the results of a page of IDs, in the order of the IDs.
+     * @param findBySpecification runs the query on the database.
+     * @return the page of results.
+     */
+    private <T> Page<T> findPage(AnimeQuery query, Function<List<Long>, List<T>> findByIds,
+                                 BiFunction<Specification<Anime>, Pageable, Page<T>> findBySpecification) {
+        if (query.getTitle() != null && searchIndex.isReady()) {
+            AnimeSearchIndex.SearchHits hits = searchIndex.search(query);
+            return new PageImpl<>(findByIds.apply(hits.getAnimeIds()), query.toPageable(), hits.getTotalHits());
+        }
+
+        if (query.getTitle() == null && columnStore.isReady()) {
+            Page<Long> animeIds = columnStore.query(query);
+            return new PageImpl<>(findByIds.apply(animeIds.getContent()), query.toPageable(), animeIds.getTotalElements());
+        }
+
+        return findBySpecification.apply(AnimeSpecifications.matching(query), query.toPageable());
+    }
+
+    /**
+     * Runs a keyset query on the database, fetching one extra row to know whether there is a next page.
+     *
+     * @param parameters the query parameters, including the cursor.
+     * @param fetch      runs the seek specification, sorted and limited to the page size plus one.
+     * @param cursorOf   builds the cursor positioned after a result.
+     * @return the page of results along with the cursor of the next page.
+     */
+    private <T> KeysetPage<T> scroll(Map<String, String> parameters,
+                                     BiFunction<Specification<Anime>, AnimeQuery, List<T>> fetch,
+                                     BiFunction<AnimeQuery, T, KeysetCursor> cursorOf) {
+        AnimeQuery query = AnimeQuery.fromParameters(parameters);
+        KeysetCursor cursor = KeysetCursor.decode(parameters.get("cursor"));
+        if (cursor != null && !cursor.getSort().equals(query.getSortName())) {
+            throw new IllegalArgumentException("The cursor does not match the requested sort");
+        }
+
+        Specification<Anime> specification = AnimeSpecifications.matching(query)
+                .and(AnimeSpecifications.after(query, cursor));
+        List<T> results = fetch.apply(specification, query);
+
+        if (results.size() <= query.getSize()) {
+            return new KeysetPage<>(results, null);
+        }
+
+        results = results.subList(0, query.getSize());
+        return new KeysetPage<>(results, cursorOf.apply(query, results.get(results.size() - 1)).encode());
+    }
+
+    /**
+     * Builds the cursor positioned after an anime, holding the value of its sort property.
+     */
+    private static KeysetCursor cursorAfter(AnimeQuery query, Long id, LocalDate startDate, Integer episodeCount) {
+        Object key = "startDate".equals(query.getSortProperty()) ? startDate
+                : "episodeCount".equals(query.getSortProperty()) ? episodeCount
+                : null;
+        return new KeysetCursor(query.getSortName(), key == null ? null : key.toString(), id);
+    }
+
+    /**
+     * Loads the animes with the given IDs, keeping the order of the IDs.
+     *
+     * @param ids the IDs of the animes.
+     * @return the animes found, in the order of the IDs.
+     */
+    private List<Anime> findAllInOrder(List<Long> ids) {
+        return inIdOrder(ids, animeRepository.findAllById(ids), Anime::getId);
+    }
+
+    /**
+     * Loads the anime cards with the given IDs, keeping the order of the IDs.
+     *
+     * @param ids the IDs of the animes.
+     * @return the anime cards found, in the order of the IDs.
+     */
+    private List<AnimeCard> findCardsInOrder(List<Long> ids) {
+        return inIdOrder(ids, animeRepository.findCardsByIdIn(ids), AnimeCard::getId);
+    }
+
+    private static <T> List<T> inIdOrder(List<Long> ids, List<T> results, Function<T, Long> idOf) {
+        Map<Long, T> resultsById = results.stream()
+                .collect(Collectors.toMap(idOf, Function.identity()));
+
+        return ids.stream()
+                .map(resultsById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
     }
 }
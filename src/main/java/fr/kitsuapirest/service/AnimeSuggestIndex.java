@@ -0,0 +1,331 @@
+package fr.kitsuapirest.service;
+
+import fr.kitsuapirest.dto.AnimeSuggestion;
+import fr.kitsuapirest.dto.AnimeTitleView;
+import fr.kitsuapirest.event.AnimeCatalogChangedEvent;
+import fr.kitsuapirest.repository.AnimeRepository;
+import fr.kitsuapirest.repository.RatingRepository;
+import fr.kitsuapirest.repository.WatchlistRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+/**
+ * The AnimeSuggestIndex class serves title completions from an immutable in-memory snapshot of the catalog titles.
+ * The snapshot is rebuilt in the background and swapped atomically whenever the catalog changes.
+ * Every build runs on the same single thread, so that an older build never replaces a newer snapshot.
+ */
+@Component
+public class AnimeSuggestIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnimeSuggestIndex.class);
+
+    private final AnimeRepository animeRepository;
+    private final RatingRepository ratingRepository;
+    private final WatchlistRepository watchlistRepository;
+
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "anime-suggest-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    public AnimeSuggestIndex(AnimeRepository animeRepository, RatingRepository ratingRepository,
+                             WatchlistRepository watchlistRepository) {
+        this.animeRepository = animeRepository;
+        this.ratingRepository = ratingRepository;
+        this.watchlistRepository = watchlistRepository;
+    }
+
+    /**
+     * Returns the most popular animes whose title, or one of its words, starts with the given text.
+     *
+     * @param text  the text typed by the user.
+     * @param limit the maximum number of suggestions.
+     * @return the suggestions, most popular first.
+     */
+    public List<AnimeSuggestion> suggest(String text, int limit) {
+        return snapshot.suggest(text, limit);
+    }
+
+    /**
+     * Schedules the build of the first snapshot once the application has started.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        scheduleRebuild();
+    }
+
+    /**
+     * Rebuilds the snapshot from the catalog on the calling thread.
+     * The application only calls it from the rebuild thread, through scheduleRebuild.
+     */
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+
+        Map<Long, Integer> popularity = new HashMap<>();
+        addCounts(popularity, ratingRepository.countRatingsByAnime());
+        addCounts(popularity, watchlistRepository.countWatchlistsByAnime());
+
+        Snapshot rebuilt = Snapshot.build(animeRepository.findAllProjectedBy(), popularity);
+        snapshot = rebuilt;
+
+        logger.debug("Anime suggest index rebuilt with {} keys in {} ms", rebuilt.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Schedules a rebuild of the snapshot after a catalog change.
+     * Changes received while a rebuild is pending are coalesced into that rebuild.
+     *
+     * @param event the catalog change event.
+     */
+    @EventListener
+    public void onCatalogChanged(AnimeCatalogChangedEvent event) {
+        scheduleRebuild();
+    }
+
+    private void scheduleRebuild() {
+        if (rebuildPending.compareAndSet(false, true)) {
+            rebuildExecutor.execute(() -> {
+                rebuildPending.set(false);
+                try {
+                    rebuild();
+                } catch (RuntimeException e) {
+                    logger.error("Failed to rebuild the anime suggest index", e);
+                }
+            });
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    private static void addCounts(Map<Long, Integer> popularity, List<Object[]> counts) {
+        for (Object[] row : counts) {
+            popularity.merge((Long) row[0], ((Number) row[1]).intValue(), Integer::sum);
+        }
+    }
+
+    /**
+     * Normalizes a title for prefix matching: lower case, without accents or punctuation, single spaces.
+     *
+     * @param text the text to normalize.
+     * @return the normalized text.
+     */
+    static String normalize(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFKD);
+        String withoutAccents = Snapshot.DIACRITICS.matcher(decomposed).replaceAll("");
+        return Snapshot.SEPARATORS.matcher(withoutAccents.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    /**
+     * The Snapshot class is an immutable sorted array of normalized title keys.
+     * Every word start of every title is a key, so that completions also match words in the middle of a title.
+     * A max segment tree over the popularity of the keys returns the most popular animes of a prefix range
+     * without scanning the whole range.
+     */
+    public static final class Snapshot {
+
+        static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+        static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+        static final Snapshot EMPTY = build(Collections.emptyList(), Collections.emptyMap());
+
+        private final String[] keys;
+        private final int[] keyAnime;
+        private final long[] animeIds;
+        private final String[] animeTitles;
+        private final int[] animePopularity;
+        private final int[] maxTree;
+
+        private Snapshot(String[] keys, int[] keyAnime, long[] animeIds, String[] animeTitles, int[] animePopularity) {
+            this.keys = keys;
+            this.keyAnime = keyAnime;
+            this.animeIds = animeIds;
+            this.animeTitles = animeTitles;
+            this.animePopularity = animePopularity;
+            this.maxTree = new int[2 * keys.length];
+
+            for (int i = 0; i < keys.length; i++) {
+                maxTree[keys.length + i] = i;
+            }
+            for (int i = keys.length - 1; i > 0; i--) {
+                maxTree[i] = better(maxTree[2 * i], maxTree[2 * i + 1]);
+            }
+        }
+
+        /**
+         * Builds a snapshot from the anime titles.
+         *
+         * @param animes     the titles of the animes.
+         * @param popularity the popularity of each anime ID, missing IDs count as zero.
+         * @return the snapshot.
+         */
+        public static Snapshot build(List<? extends AnimeTitleView> animes, Map<Long, Integer> popularity) {
+            long[] animeIds = new long[animes.size()];
+            String[] animeTitles = new String[animes.size()];
+            int[] animePopularity = new int[animes.size()];
+
+            List<Key> keys = new ArrayList<>();
+            for (int anime = 0; anime < animes.size(); anime++) {
+                AnimeTitleView view = animes.get(anime);
+                animeIds[anime] = view.getId();
+                animeTitles[anime] = view.getTitle() != null ? view.getTitle() : view.getTitleEnJp();
+                animePopularity[anime] = popularity.getOrDefault(view.getId(), 0);
+
+                Set<String> animeKeys = new HashSet<>();
+                addWordKeys(animeKeys, view.getTitle());
+                addWordKeys(animeKeys, view.getTitleEnJp());
+                addWordKeys(animeKeys, view.getTitleJaJp());
+                for (String key : animeKeys) {
+                    keys.add(new Key(key, anime));
+                }
+            }
+
+            keys.sort((a, b) -> a.text.compareTo(b.text));
+
+            String[] keyTexts = new String[keys.size()];
+            int[] keyAnime = new int[keys.size()];
+            for (int i = 0; i < keys.size(); i++) {
+                keyTexts[i] = keys.get(i).text;
+                keyAnime[i] = keys.get(i).anime;
+            }
+
+            return new Snapshot(keyTexts, keyAnime, animeIds, animeTitles, animePopularity);
+        }
+
+        /**
+         * Returns the most popular distinct animes having a key starting with the given text.
+         *
+         * @param text  the text typed by the user.
+         * @param limit the maximum number of suggestions.
+         * @return the suggestions, most popular first.
+         */
+        public List<AnimeSuggestion> suggest(String text, int limit) {
+            String prefix = text == null ? "" : normalize(text);
+            if (prefix.isEmpty() || limit <= 0) {
+                return Collections.emptyList();
+            }
+
+            int from = lowerBound(prefix);
+            int to = lowerBound(prefix + Character.MAX_VALUE);
+            if (from >= to) {
+                return Collections.emptyList();
+            }
+
+            // Ranges ordered by the popularity of their best key, each pop yields the best remaining key
+            PriorityQueue<int[]> ranges = new PriorityQueue<>((a, b) -> compareKeys(a[2], b[2]));
+            ranges.add(new int[]{from, to, argMax(from, to)});
+
+            List<AnimeSuggestion> suggestions = new ArrayList<>(limit);
+            Set<Integer> seen = new HashSet<>();
+            while (!ranges.isEmpty() && suggestions.size() < limit) {
+                int[] range = ranges.poll();
+                int best = range[2];
+
+                int anime = keyAnime[best];
+                if (seen.add(anime)) {
+                    suggestions.add(new AnimeSuggestion(animeIds[anime], animeTitles[anime]));
+                }
+
+                if (range[0] < best) {
+                    ranges.add(new int[]{range[0], best, argMax(range[0], best)});
+                }
+                if (best + 1 < range[1]) {
+                    ranges.add(new int[]{best + 1, range[1], argMax(best + 1, range[1])});
+                }
+            }
+            return suggestions;
+        }
+
+        public int size() {
+            return keys.length;
+        }
+
+        private static void addWordKeys(Set<String> keys, String title) {
+            if (title == null) {
+                return;
+            }
+            String normalized = normalize(title);
+            if (normalized.isEmpty()) {
+                return;
+            }
+
+            keys.add(normalized);
+            for (int i = normalized.indexOf(' '); i >= 0; i = normalized.indexOf(' ', i + 1)) {
+                keys.add(normalized.substring(i + 1));
+            }
+        }
+
+        private int lowerBound(String prefix) {
+            int index = Arrays.binarySearch(keys, prefix);
+            return index >= 0 ? index : -index - 1;
+        }
+
+        /**
+         * Returns the index of the most popular key in [from, to).
+         */
+        private int argMax(int from, int to) {
+            int best = -1;
+            for (int left = from + keys.length, right = to + keys.length; left < right; left >>= 1, right >>= 1) {
+                if ((left & 1) == 1) {
+                    best = better(best, maxTree[left++]);
+                }
+                if ((right & 1) == 1) {
+                    best = better(best, maxTree[--right]);
+                }
+            }
+            return best;
+        }
+
+        private int better(int a, int b) {
+            if (a < 0) {
+                return b;
+            }
+            return compareKeys(a, b) <= 0 ? a : b;
+        }
+
+        /**
+         * Orders keys by descending popularity, then by key order.
+         */
+        private int compareKeys(int a, int b) {
+            int byPopularity = Integer.compare(animePopularity[keyAnime[b]], animePopularity[keyAnime[a]]);
+            return byPopularity != 0 ? byPopularity : Integer.compare(a, b);
+        }
+
+        private static final class Key {
+
+            private final String text;
+            private final int anime;
+
+            private Key(String text, int anime) {
+                this.text = text;
+                this.anime = anime;
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package fr.kitsuapirest.service;
+
+import fr.kitsuapirest.event.AnimeCatalogChangedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The CatalogVersion class counts the changes of the anime catalog, to build the ETags of the catalog APIs.
+ * The catalog version is bumped on every change, and each anime keeps the catalog version of its last change.
+ * The startup time is part of every ETag, because the counters start over when the application restarts.
+ * The ETags of the Kitsu feeds are built the same way from the versions of the feed cache.
+ * The version is bumped after the catalog indexes have applied the change, so that a version is never
+ * observed before the results it stands for.
+ */
+@Component
+public class CatalogVersion {
+
+    private final long epoch = System.currentTimeMillis();
+    private final AtomicLong version = new AtomicLong();
+    private final Map<Long, Long> animeVersions = new ConcurrentHashMap<>();
+
+    /**
+     * Bumps the catalog version and the version of every changed anime.
+     *
+     * @param event the catalog change event.
+     */
+    @EventListener
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onCatalogChanged(AnimeCatalogChangedEvent event) {
+        long changeVersion = version.incrementAndGet();
+        for (Long animeId : event.getAnimeIds()) {
+            animeVersions.put(animeId, changeVersion);
+        }
+    }
+
+    /**
+     * Returns the current catalog version.
+     *
+     * @return the number of catalog changes since startup.
+     */
+    public long current() {
+        return version.get();
+    }
+
+    /**
+     * Returns the ETag of the whole catalog, which changes whenever any anime changes.
+     *
+     * @return the strong ETag, quoted.
+     */
+    public String catalogETag() {
+        return "\"catalog-" + epoch + "-" + version.get() + "\"";
+    }
+
+    /**
+     * Returns the ETag of one anime, which only changes when this anime changes.
+     *
+     * @param animeId the ID of the anime.
+     * @return the strong ETag, quoted.
+     */
+    public String animeETag(Long animeId) {
+        return "\"anime-" + animeId + "-" + epoch + "-" + animeVersions.getOrDefault(animeId, 0L) + "\"";
+    }
+
+    /**
+     * Returns the ETag of a Kitsu feed, which changes when the feed is refreshed or becomes stale.
+     *
+     * @param feed        the feed.
+     * @param feedVersion the version of the feed in the feed cache.
+     * @param stale       whether the feed is stale.
+     * @return the strong ETag, quoted.
+     */
+    public String feedETag(AnimeFeed feed, long feedVersion, boolean stale) {
+        return "\"feed-" + feed.name().toLowerCase() + "-" + epoch + "-" + feedVersion + (stale ? "-stale" : "") + "\"";
+    }
+}
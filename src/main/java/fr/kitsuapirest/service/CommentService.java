@@ -1,6 +1,8 @@
 package fr.kitsuapirest.service;
 
 import fr.kitsuapirest.dto.CommentForm;
+import fr.kitsuapirest.dto.KeysetCursor;
+import fr.kitsuapirest.dto.KeysetPage;
 import fr.kitsuapirest.exception.NotFoundException;
 import fr.kitsuapirest.exception.UnauthorizedException;
 import fr.kitsuapirest.model.Anime;
@@ -9,6 +11,9 @@ import fr.kitsuapirest.model.User;
 import fr.kitsuapirest.repository.AnimeRepository;
 import fr.kitsuapirest.repository.CommentRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
 import java.security.Principal;
@@ -23,6 +28,9 @@ import java.util.stream.Collectors;
 @Service
 public class CommentService {
 
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
     private final CommentRepository commentRepository;
     private final UserService userService;
     private final AnimeService animeService;
@@ -51,6 +59,34 @@ public class CommentService {
         return commentRepository.findByAnimeId(animeId);
     }
 
+    /**
+     * Retrieves a page of comments by anime ID using keyset pagination, oldest first.
+     * The page starts after the comment encoded in the cursor, so that deep pages cost the same as the first one.
+     *
+     * @param animeId the ID of the anime.
+     * @param cursor  the cursor returned with the previous page, or null for the first page.
+     * @param size    the maximum number of comments, or null for the default size.
+     * @return the page of comments along with the cursor of the next page.
+     * @throws IllegalArgumentException if the cursor is invalid.
+     */
+    public KeysetPage<Comment> scrollCommentsByAnimeId(Long animeId, String cursor, Integer size) {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        if (after != null && !after.getSort().equals("id")) {
+            throw new IllegalArgumentException("The cursor does not match the comment order");
+        }
+
+        int pageSize = size == null || size < 1 ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+        Slice<Comment> comments = commentRepository.findByAnimeIdAndIdGreaterThan(
+                animeId, after != null ? after.getId() : 0L, PageRequest.of(0, pageSize, Sort.by("id")));
+
+        String nextCursor = null;
+        if (comments.hasNext()) {
+            Comment last = comments.getContent().get(comments.getNumberOfElements() - 1);
+            nextCursor = new KeysetCursor("id", null, last.getId()).encode();
+        }
+        return new KeysetPage<>(comments.getContent(), nextCursor);
+    }
+
     /**
      * Adds a new comment for an anime.
      *
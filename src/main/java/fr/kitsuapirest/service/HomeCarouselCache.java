@@ -0,0 +1,108 @@
+package fr.kitsuapirest.service;
+
+import fr.kitsuapirest.dto.HomePage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.web.IWebExchange;
+import org.thymeleaf.web.servlet.JakartaServletWebApplication;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The HomeCarouselCache class keeps the rendered HTML of the home page carousels, which is the same for every
+ * visitor, so that only the personalized parts of the home page are rendered per request.
+ * The carousels are cached under the version they were rendered from, and are rendered again once a feed is
+ * refreshed or the catalog changes. Carousels with an unavailable section are not cached.
+ */
+@Component
+public class HomeCarouselCache {
+
+    public static final String TEMPLATE = "fragments/carousels";
+    public static final String FRAGMENT = "carousels";
+
+    private final ITemplateEngine templateEngine;
+    private final Counter hits;
+    private final Counter misses;
+    private final AtomicReference<Rendered> rendered = new AtomicReference<>();
+
+    public HomeCarouselCache(ITemplateEngine templateEngine, MeterRegistry meterRegistry) {
+        this.templateEngine = templateEngine;
+        this.hits = Counter.builder("kodo.home.carousels")
+                .description("Home page carousels served from the cache or rendered")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("kodo.home.carousels")
+                .description("Home page carousels served from the cache or rendered")
+                .tag("result", "miss")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the cached carousels of a version.
+     *
+     * @param version the version of the carousels.
+     * @return the rendered carousels, or null if they are not cached for this version.
+     */
+    public String get(String version) {
+        Rendered current = rendered.get();
+        if (current != null && current.version.equals(version)) {
+            hits.increment();
+            return current.html;
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Renders the carousels of a home page, and caches them unless a section was unavailable.
+     * The links are rendered without URL rewriting, since the cached HTML is shared by every session.
+     *
+     * @param version  the version of the carousels, read before the home page was loaded.
+     * @param homePage the home page.
+     * @param request  the HTTP request.
+     * @param response the HTTP response.
+     * @return the rendered carousels.
+     */
+    public String render(String version, HomePage homePage, HttpServletRequest request, HttpServletResponse response) {
+        IWebExchange exchange = JakartaServletWebApplication.buildApplication(request.getServletContext())
+                .buildExchange(request, new HttpServletResponseWrapper(response) {
+                    @Override
+                    public String encodeURL(String url) {
+                        return url;
+                    }
+                });
+        WebContext context = new WebContext(exchange, request.getLocale(), Map.of(
+                "trendingAnimes", homePage.getTrendingAnimes(),
+                "upcomingAnimes", homePage.getUpcomingAnimes(),
+                "trendingUnavailable", homePage.isTrendingUnavailable(),
+                "upcomingUnavailable", homePage.isUpcomingUnavailable()));
+
+        String html = templateEngine.process(TEMPLATE, Set.of(FRAGMENT), context);
+        if (!homePage.isTrendingUnavailable() && !homePage.isUpcomingUnavailable()) {
+            rendered.set(new Rendered(version, html));
+        }
+        return html;
+    }
+
+    /**
+     * The Rendered class holds the rendered carousels with the version they were rendered from.
+     */
+    private static final class Rendered {
+
+        private final String version;
+        private final String html;
+
+        private Rendered(String version, String html) {
+            this.version = version;
+            this.html = html;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package fr.kitsuapirest.service;
+
+import fr.kitsuapirest.ApiResponse.AnimeData;
+import fr.kitsuapirest.ApiResponse.Titles;
+import fr.kitsuapirest.dto.HomePage;
+import fr.kitsuapirest.model.User;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * The HomePageService class builds the home page in process.
+ * The trending feed, the upcoming feed and the authenticated user are loaded concurrently on a bounded pool,
+ * and the page waits for them until a common deadline. A section which fails or misses the deadline is left empty,
+ * without holding back the other sections.
+ * When a section executor is set, such as a virtual thread per task executor, the sections run on it instead of the pool.
+ */
+@Service
+public class HomePageService {
+
+    public static final String SECTION_EXECUTOR = "homePageSectionExecutor";
+
+    private static final Logger logger = LoggerFactory.getLogger(HomePageService.class);
+
+    private final AnimeService animeService;
+    private final UserService userService;
+    private final CatalogVersion catalogVersion;
+    private final MeterRegistry meterRegistry;
+    private final Duration deadline;
+    private final ThreadPoolExecutor executor;
+    private Executor sectionExecutor;
+
+    public HomePageService(AnimeService animeService, UserService userService, CatalogVersion catalogVersion,
+                           MeterRegistry meterRegistry,
+                           @Value("${kodo.home.threads:8}") int threads,
+                           @Value("${kodo.home.queue-capacity:64}") int queueCapacity,
+                           @Value("${kodo.home.deadline:PT1.5S}") Duration deadline) {
+        this.animeService = animeService;
+        this.userService = userService;
+        this.catalogVersion = catalogVersion;
+        this.meterRegistry = meterRegistry;
+        this.deadline = deadline;
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "home-page");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.allowCoreThreadTimeOut(true);
+        this.sectionExecutor = executor;
+    }
+
+    /**
+     * Runs the sections on the given executor instead of the bounded pool.
+     *
+     * @param sectionExecutor the executor of the sections, such as a virtual thread per task executor.
+     */
+    @Autowired(required = false)
+    public void setSectionExecutor(@Qualifier(SECTION_EXECUTOR) Executor sectionExecutor) {
+        this.sectionExecutor = sectionExecutor;
+    }
+
+    /**
+     * Builds the home page.
+     *
+     * @param username the name of the authenticated user, or null.
+     * @return the sections of the home page.
+     */
+    public HomePage getHomePage(String username) {
+        long deadlineNanos = System.nanoTime() + deadline.toNanos();
+
+        Future<List<AnimeData>> trending = submit(() -> linkToCatalog(animeService.getTrendingAnimes()));
+        Future<List<AnimeData>> upcoming = submit(() -> linkToCatalog(animeService.getUpcomingAnimes()));
+        Future<User> user = username == null ? CompletableFuture.completedFuture(null)
+                : submit(() -> userService.getUserByUsername(username));
+
+        List<AnimeData> trendingAnimes = await("trending", trending, deadlineNanos);
+        List<AnimeData> upcomingAnimes = await("upcoming", upcoming, deadlineNanos);
+        return new HomePage(trendingAnimes == null ? List.of() : trendingAnimes,
+                upcomingAnimes == null ? List.of() : upcomingAnimes,
+                await("user", user, deadlineNanos),
+                trendingAnimes == null, upcomingAnimes == null);
+    }
+
+    /**
+     * Loads the authenticated user alone, for a home page whose carousels are already rendered.
+     *
+     * @param username the name of the authenticated user, or null.
+     * @return the user, or null if no user is authenticated or it missed the deadline.
+     */
+    public User getUser(String username) {
+        if (username == null) {
+            return null;
+        }
+        return await("user", submit(() -> userService.getUserByUsername(username)), System.nanoTime() + deadline.toNanos());
+    }
+
+    /**
+     * Returns the version of the home page carousels, which changes when a feed is refreshed or when the catalog
+     * changes, since the carousels link their animes to the catalog.
+     *
+     * @return the version of the carousels.
+     */
+    public String getCarouselsVersion() {
+        return animeService.getFeedVersion(AnimeFeed.TRENDING) + "-" + animeService.getFeedVersion(AnimeFeed.UPCOMING)
+                + "-" + catalogVersion.current();
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Links the animes of a feed to the catalog: an anime found in the catalog by title links to its details page.
+     * The titles of the whole feed are resolved with a single query.
+     * The feed animes are shared by the feed cache, so the linked animes are copies.
+     *
+     * @param feed the animes of the feed.
+     * @return the linked animes.
+     */
+    private List<AnimeData> linkToCatalog(List<AnimeData> feed) {
+        List<String> titles = feed.stream().map(HomePageService::titleOf).filter(Objects::nonNull).toList();
+        Map<String, Long> animeIds = animeService.getAnimeIdsByTitles(titles);
+
+        List<AnimeData> linked = new ArrayList<>(feed.size());
+        for (AnimeData animeData : feed) {
+            String title = titleOf(animeData);
+            Long animeId = title == null ? null : animeIds.get(title);
+
+            AnimeData copy = new AnimeData();
+            copy.setId(animeId != null ? animeId.toString() : animeData.getId());
+            copy.setType(animeData.getType());
+            copy.setAttributes(animeData.getAttributes());
+            linked.add(copy);
+        }
+        return linked;
+    }
+
+    private static String titleOf(AnimeData animeData) {
+        Titles titles = animeData.getAttributes() == null ? null : animeData.getAttributes().getTitles();
+        return titles == null ? null : titles.getEn();
+    }
+
+    private <T> Future<T> submit(Supplier<T> section) {
+        try {
+            return CompletableFuture.supplyAsync(section, sectionExecutor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Waits for a section until the deadline.
+     *
+     * @param name          the name of the section.
+     * @param section       the section being loaded.
+     * @param deadlineNanos the deadline, in System.nanoTime units.
+     * @param <T>           the type of the section.
+     * @return the section, or null if it failed or missed the deadline.
+     */
+    private <T> T await(String name, Future<T> section, long deadlineNanos) {
+        try {
+            return section.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            section.cancel(true);
+            degraded(name, "timeout");
+            logger.warn("The {} section of the home page missed its deadline of {} ms", name, deadline.toMillis());
+        } catch (ExecutionException e) {
+            degraded(name, "error");
+            logger.warn("The {} section of the home page failed: {}", name, e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            degraded(name, "interrupted");
+        }
+        return null;
+    }
+
+    private void degraded(String section, String reason) {
+        Counter.builder("kodo.home.degraded")
+                .description("Home page sections left empty because they failed or missed their deadline")
+                .tag("section", section)
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+}
@@ -3,20 +3,22 @@ package fr.kitsuapirest.service;
 import fr.kitsuapirest.ApiResponse.AnimeAttributes;
 import fr.kitsuapirest.ApiResponse.AnimeData;
 import fr.kitsuapirest.ApiResponse.ApiResponse;
+import fr.kitsuapirest.ApiResponse.Titles;
+import fr.kitsuapirest.event.AnimeCatalogChangedEvent;
 import fr.kitsuapirest.exception.UnauthorizedException;
 import fr.kitsuapirest.model.Anime;
 import fr.kitsuapirest.model.Role;
 import fr.kitsuapirest.repository.AnimeRepository;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
 import java.security.Principal;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 
 /**
  * The KitsuApiService class handles operations related to the Kitsu API.
@@ -24,12 +26,25 @@ import java.util.List;
 @Service
 public class KitsuApiService {
 
-    private final RestTemplate restTemplate;
+    /**
+     * The sparse fieldset of the anime requests, limited to the attributes mapped to an Anime.
+     */
+    /**
+     * The largest page Kitsu returns, whatever page[limit] asks for.
+     */
+    public static final int MAX_PAGE_LIMIT = 20;
+
+    private static final String ANIME_FIELDS = "&fields[anime]=titles,posterImage,synopsis,startDate,endDate,episodeCount,"
+            + "episodeLength,subtype,status,ageRatingGuide,updatedAt";
+
+    private final KitsuClient kitsuClient;
     private final AnimeRepository animeRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public KitsuApiService(RestTemplate restTemplate, AnimeRepository animeRepository) {
-        this.restTemplate = restTemplate;
+    public KitsuApiService(KitsuClient kitsuClient, AnimeRepository animeRepository, ApplicationEventPublisher eventPublisher) {
+        this.kitsuClient = kitsuClient;
         this.animeRepository = animeRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -41,44 +56,108 @@ public class KitsuApiService {
      * @throws UnauthorizedException if the user is not authorized to access the search results.
      */
     public List<Anime> searchAnimeByTitle(String title, String role) {
-        String apiUrl = "https://kitsu.io/api/edge/anime?filter[text]=" + title;
-
-        ResponseEntity<ApiResponse> response = restTemplate.exchange(
-                apiUrl, HttpMethod.GET, null, ApiResponse.class);
-        ApiResponse apiResponse = response.getBody();
-
         if (!role.equals("ADMIN")) {
             throw new UnauthorizedException("Unauthorized access");
         }
 
+        // The Kitsu text search ignores case, so that searches differing only by case share one request
+        String apiUrl = "/anime?filter[text]=" + title.trim().toLowerCase(Locale.ROOT) + ANIME_FIELDS;
+        ApiResponse apiResponse = kitsuClient.get(KitsuClient.Operation.SEARCH, apiUrl, ApiResponse.class);
+
         if (apiResponse != null && apiResponse.getData() != null) {
-            List<AnimeData> animeDataList = apiResponse.getData();
             List<Anime> searchedAnimes = new ArrayList<>();
-
-            for (AnimeData animeData : animeDataList) {
-                AnimeAttributes animeAttributes = animeData.getAttributes();
-                Anime anime = new Anime();
-
-                anime.setTitle(animeAttributes.getTitles().getEn());
-                anime.setImage(animeAttributes.getPosterImage().getOriginal());
-                anime.setSynopsis(animeAttributes.getSynopsis());
-                anime.setStartDate(animeAttributes.getStartDate());
-                anime.setEndDate(animeAttributes.getEndDate());
-                anime.setEpisodeCount(animeAttributes.getEpisodeCount());
-                anime.setEpisodeLength(animeAttributes.getEpisodeLength());
-                anime.setSubtype(animeAttributes.getSubtype());
-                anime.setStatus(animeAttributes.getStatus());
-                anime.setAgeRatingGuide(animeAttributes.getAgeRatingGuide());
-
-                searchedAnimes.add(anime);
+            for (AnimeData animeData : apiResponse.getData()) {
+                searchedAnimes.add(toAnime(animeData));
             }
-
             return searchedAnimes;
         }
 
         return Collections.emptyList();
     }
 
+    /**
+     * Fetches a page of the Kitsu catalog, sorted by Kitsu id so that the offsets stay stable while the catalog grows.
+     *
+     * @param offset the offset of the page.
+     * @param limit  the size of the page, at most 20.
+     * @return the animes of the page, fewer than the limit on the last page.
+     */
+    public List<Anime> fetchCatalogPage(int offset, int limit) {
+        return fetchAnimes(KitsuClient.Operation.CATALOG, "/anime?sort=id&page[limit]=" + limit
+                + "&page[offset]=" + offset + ANIME_FIELDS);
+    }
+
+    /**
+     * Fetches a page of the Kitsu catalog, most recently updated first.
+     *
+     * @param offset the offset of the page.
+     * @param limit  the size of the page, at most 20.
+     * @return the animes of the page, with their Kitsu update time.
+     */
+    public List<Anime> fetchRecentlyUpdatedPage(int offset, int limit) {
+        return fetchAnimes(KitsuClient.Operation.SYNC, "/anime?sort=-updatedAt&page[limit]=" + limit
+                + "&page[offset]=" + offset + ANIME_FIELDS);
+    }
+
+    /**
+     * Fetches the animes with the given Kitsu ids.
+     *
+     * @param kitsuIds the Kitsu ids, at most 20.
+     * @return the animes found.
+     */
+    public List<Anime> fetchAnimesByKitsuIds(Collection<String> kitsuIds) {
+        return fetchAnimes(KitsuClient.Operation.SYNC, "/anime?filter[id]=" + String.join(",", kitsuIds)
+                + "&page[limit]=" + kitsuIds.size() + ANIME_FIELDS);
+    }
+
+    private List<Anime> fetchAnimes(KitsuClient.Operation operation, String apiUrl) {
+        ApiResponse apiResponse = kitsuClient.get(operation, apiUrl, ApiResponse.class);
+
+        if (apiResponse == null || apiResponse.getData() == null) {
+            return Collections.emptyList();
+        }
+
+        List<Anime> animes = new ArrayList<>(apiResponse.getData().size());
+        for (AnimeData animeData : apiResponse.getData()) {
+            animes.add(toAnime(animeData));
+        }
+        return animes;
+    }
+
+    /**
+     * Maps a Kitsu anime to an Anime entity.
+     * The English title is used when there is one, the romanized title otherwise.
+     *
+     * @param animeData the Kitsu anime.
+     * @return the unsaved Anime.
+     */
+    private static Anime toAnime(AnimeData animeData) {
+        AnimeAttributes animeAttributes = animeData.getAttributes();
+        Titles titles = animeAttributes.getTitles();
+        Anime anime = new Anime();
+
+        anime.setKitsuId(animeData.getId());
+        if (titles != null) {
+            anime.setTitle(titles.getEn() != null ? titles.getEn() : titles.getEn_jp());
+            anime.setTitleEnJp(titles.getEn_jp());
+            anime.setTitleJaJp(titles.getJa_jp());
+        }
+        if (animeAttributes.getPosterImage() != null) {
+            anime.setImage(animeAttributes.getPosterImage().getOriginal());
+        }
+        anime.setSynopsis(animeAttributes.getSynopsis());
+        anime.setStartDate(animeAttributes.getStartDate());
+        anime.setEndDate(animeAttributes.getEndDate());
+        anime.setEpisodeCount(animeAttributes.getEpisodeCount());
+        anime.setEpisodeLength(animeAttributes.getEpisodeLength());
+        anime.setSubtype(animeAttributes.getSubtype());
+        anime.setStatus(animeAttributes.getStatus());
+        anime.setAgeRatingGuide(animeAttributes.getAgeRatingGuide());
+        anime.setKitsuUpdatedAt(animeAttributes.getUpdatedAt());
+
+        return anime;
+    }
+
     /**
      * Adds an anime to the database.
      *
@@ -89,7 +168,11 @@ public class KitsuApiService {
      * @throws AnimeAlreadyExistsException if the anime already exists in the database.
      */
     public Anime addAnime(Anime anime, String role) {
-        Anime existingAnime = animeRepository.findByTitle(anime.getTitle());
+        if (anime.getKitsuId() != null && animeRepository.existsByKitsuId(anime.getKitsuId())) {
+            throw new AnimeAlreadyExistsException("The anime " + anime.getKitsuId() + " already exists in the database.");
+        }
+
+        Anime existingAnime = animeRepository.findFirstByTitleOrderByIdAsc(anime.getTitle());
 
         if (existingAnime != null) {
             throw new AnimeAlreadyExistsException("The anime " + anime.getTitle() + " already exists in the database.");
@@ -99,7 +182,10 @@ public class KitsuApiService {
             throw new UnauthorizedException("Unauthorized access");
         }
 
-        return animeRepository.save(anime);
+        Anime savedAnime = animeRepository.save(anime);
+        eventPublisher.publishEvent(AnimeCatalogChangedEvent.added(this, savedAnime.getId()));
+
+        return savedAnime;
     }
 
     /**
@@ -0,0 +1,332 @@
+package fr.kitsuapirest.service;
+
+import fr.kitsuapirest.dto.AnimeTitleView;
+import fr.kitsuapirest.dto.ImportStatus;
+import fr.kitsuapirest.event.AnimeCatalogChangedEvent;
+import fr.kitsuapirest.model.Anime;
+import fr.kitsuapirest.model.ImportCheckpoint;
+import fr.kitsuapirest.repository.AnimeRepository;
+import fr.kitsuapirest.repository.ImportCheckpointRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * The KitsuCatalogImporter class imports the whole Kitsu catalog in the background.
+ * The catalog pages are fetched in waves of a few parallel requests, and the new animes are inserted with
+ * JDBC batches. The offset reached is checkpointed after every batch, so that an interrupted import resumes
+ * where it stopped, and animes already in the catalog are skipped. The animes added to the catalog before it was
+ * linked to Kitsu are matched by title and linked to their Kitsu anime instead of being inserted again.
+ */
+@Component
+public class KitsuCatalogImporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(KitsuCatalogImporter.class);
+
+    private static final String JOB = "kitsu-catalog";
+
+    private static final String INSERT_SQL = "insert into anime (kitsu_id, title, title_en_jp, title_ja_jp, image, synopsis, "
+            + "synopsis_excerpt, start_date, end_date, episode_count, episode_length, subtype, status, age_rating_guide, "
+            + "kitsu_updated_at, content_hash) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String LINK_SQL = "update anime set kitsu_id = ?, title = ?, title_en_jp = ?, title_ja_jp = ?, "
+            + "image = ?, synopsis = ?, synopsis_excerpt = ?, start_date = ?, end_date = ?, episode_count = ?, "
+            + "episode_length = ?, subtype = ?, status = ?, age_rating_guide = ?, kitsu_updated_at = ?, content_hash = ? "
+            + "where id = ? and kitsu_id is null";
+
+    private final KitsuApiService kitsuApiService;
+    private final AnimeRepository animeRepository;
+    private final ImportCheckpointRepository checkpointRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Counter importedRows;
+    private final int concurrency;
+    private final int pageSize;
+    private final int batchSize;
+
+    private final ExecutorService importExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "kitsu-import");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private volatile boolean stopRequested;
+    private volatile ImportStatus status;
+
+    public KitsuCatalogImporter(KitsuApiService kitsuApiService, AnimeRepository animeRepository,
+                                ImportCheckpointRepository checkpointRepository, JdbcTemplate jdbcTemplate,
+                                ApplicationEventPublisher eventPublisher, MeterRegistry meterRegistry,
+                                @Value("${kodo.import.concurrency:4}") int concurrency,
+                                @Value("${kodo.import.page-size:20}") int pageSize,
+                                @Value("${kodo.import.batch-size:500}") int batchSize) {
+        this.kitsuApiService = kitsuApiService;
+        this.animeRepository = animeRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.importedRows = Counter.builder("kodo.import.rows")
+                .description("Animes inserted by the Kitsu catalog import")
+                .register(meterRegistry);
+        this.concurrency = concurrency;
+        // A shorter page than asked marks the end of the catalog, so the pages must not exceed what Kitsu returns
+        if (pageSize > KitsuApiService.MAX_PAGE_LIMIT) {
+            logger.warn("kodo.import.page-size {} exceeds the Kitsu page limit, using {}", pageSize,
+                    KitsuApiService.MAX_PAGE_LIMIT);
+        }
+        this.pageSize = Math.min(pageSize, KitsuApiService.MAX_PAGE_LIMIT);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Starts the import in the background, from the last checkpoint.
+     *
+     * @return false if the import was already running.
+     */
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        stopRequested = false;
+        importExecutor.execute(() -> {
+            try {
+                run();
+            } catch (RuntimeException e) {
+                logger.error("The Kitsu catalog import failed", e);
+                ImportStatus last = getStatus();
+                status = new ImportStatus(false, last.getNextOffset(), last.getImportedCount(), last.getRowsPerSecond(), e.getMessage());
+            } finally {
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Asks the running import to stop after its current wave of pages.
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    /**
+     * Returns the progress of the import.
+     *
+     * @return the status of the running or last import.
+     */
+    public ImportStatus getStatus() {
+        ImportStatus current = status;
+        if (current != null) {
+            return current;
+        }
+        ImportCheckpoint checkpoint = checkpointRepository.findById(JOB).orElseGet(() -> new ImportCheckpoint(JOB));
+        return new ImportStatus(running.get(), checkpoint.getNextOffset(), checkpoint.getImportedCount(), 0, null);
+    }
+
+    @PreDestroy
+    public void close() {
+        stopRequested = true;
+        importExecutor.shutdownNow();
+    }
+
+    /**
+     * Runs the import until the end of the Kitsu catalog, or until it is asked to stop.
+     */
+    private void run() {
+        ImportCheckpoint checkpoint = checkpointRepository.findById(JOB).orElseGet(() -> new ImportCheckpoint(JOB));
+        ExecutorService fetchExecutor = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "kitsu-import-fetch");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long start = System.nanoTime();
+        long importedThisRun = 0;
+        int offset = checkpoint.getNextOffset();
+        boolean lastPage = false;
+        List<Anime> batch = new ArrayList<>();
+        status = new ImportStatus(true, offset, checkpoint.getImportedCount(), 0, null);
+        logger.info("Kitsu catalog import started at offset {}", offset);
+
+        try {
+            while (!lastPage && !stopRequested) {
+                List<Future<List<Anime>>> wave = new ArrayList<>(concurrency);
+                for (int i = 0; i < concurrency; i++) {
+                    int pageOffset = offset + i * pageSize;
+                    wave.add(fetchExecutor.submit(() -> kitsuApiService.fetchCatalogPage(pageOffset, pageSize)));
+                }
+
+                for (Future<List<Anime>> page : wave) {
+                    List<Anime> animes = getPage(page);
+                    if (!lastPage) {
+                        batch.addAll(animes);
+                        offset += animes.size();
+                        lastPage = animes.size() < pageSize;
+                    }
+                }
+
+                if (batch.size() >= batchSize || lastPage || stopRequested) {
+                    importedThisRun += insertBatch(batch, checkpoint, offset);
+                    status = new ImportStatus(true, offset, checkpoint.getImportedCount(), rowsPerSecond(importedThisRun, start), null);
+                    logger.info("Kitsu catalog import reached offset {}, {} animes imported ({} rows/s)",
+                            offset, checkpoint.getImportedCount(), Math.round(status.getRowsPerSecond()));
+                }
+            }
+        } finally {
+            fetchExecutor.shutdownNow();
+        }
+
+        status = new ImportStatus(false, offset, checkpoint.getImportedCount(), rowsPerSecond(importedThisRun, start), null);
+        logger.info("Kitsu catalog import {} at offset {} after importing {} animes",
+                lastPage ? "completed" : "stopped", offset, importedThisRun);
+    }
+
+    /**
+     * Inserts the animes of a batch which are not in the catalog yet, then checkpoints the offset reached.
+     * An anime listed twice in the batch is only inserted once, and an anime matching the title of a catalog anime
+     * without Kitsu ID is written over that anime instead of being inserted.
+     *
+     * @param batch      the fetched animes, cleared once inserted.
+     * @param checkpoint the checkpoint of the import.
+     * @param nextOffset the offset following the batch.
+     * @return the number of inserted animes.
+     */
+    private int insertBatch(List<Anime> batch, ImportCheckpoint checkpoint, int nextOffset) {
+        Map<String, Anime> animesByKitsuId = new LinkedHashMap<>();
+        for (Anime anime : batch) {
+            if (anime.getKitsuId() != null) {
+                animesByKitsuId.putIfAbsent(anime.getKitsuId(), anime);
+            }
+        }
+        Set<String> existingKitsuIds = animesByKitsuId.isEmpty() ? Set.of()
+                : animeRepository.findKitsuIdsByKitsuIdIn(animesByKitsuId.keySet());
+
+        Map<String, Deque<Long>> unlinkedIdsByTitle = findUnlinkedIdsByTitle(animesByKitsuId.values());
+        List<Anime> newAnimes = new ArrayList<>();
+        Map<Long, Anime> links = new LinkedHashMap<>();
+        for (Anime anime : animesByKitsuId.values()) {
+            if (existingKitsuIds.contains(anime.getKitsuId())) {
+                continue;
+            }
+            Deque<Long> unlinkedIds = anime.getTitle() == null ? null : unlinkedIdsByTitle.get(anime.getTitle());
+            Long unlinkedId = unlinkedIds == null ? null : unlinkedIds.poll();
+            if (unlinkedId != null) {
+                links.put(unlinkedId, anime);
+            } else {
+                newAnimes.add(anime);
+            }
+        }
+
+        if (!links.isEmpty()) {
+            jdbcTemplate.batchUpdate(LINK_SQL, new ArrayList<>(links.entrySet()), batchSize, (statement, link) -> {
+                setColumns(statement, link.getValue());
+                statement.setLong(17, link.getKey());
+            });
+            eventPublisher.publishEvent(new AnimeCatalogChangedEvent(this, AnimeCatalogChangedEvent.Type.UPDATED,
+                    new ArrayList<>(links.keySet())));
+            logger.info("Kitsu catalog import linked {} catalog animes to Kitsu", links.size());
+        }
+
+        if (!newAnimes.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, newAnimes, batchSize, KitsuCatalogImporter::setColumns);
+
+            List<Long> ids = animeRepository.findIdsByKitsuIdIn(newAnimes.stream().map(Anime::getKitsuId).toList());
+            eventPublisher.publishEvent(new AnimeCatalogChangedEvent(this, AnimeCatalogChangedEvent.Type.ADDED, ids));
+            importedRows.increment(newAnimes.size());
+        }
+
+        checkpoint.setNextOffset(nextOffset);
+        checkpoint.setImportedCount(checkpoint.getImportedCount() + newAnimes.size());
+        checkpoint.setUpdatedAt(Instant.now());
+        checkpointRepository.save(checkpoint);
+
+        batch.clear();
+        return newAnimes.size();
+    }
+
+    /**
+     * Sets the Kitsu columns of an anime as the first parameters of an insert or link statement.
+     *
+     * @param statement the statement.
+     * @param anime     the fetched anime.
+     * @throws SQLException if a parameter cannot be set.
+     */
+    private static void setColumns(PreparedStatement statement, Anime anime) throws SQLException {
+        statement.setString(1, anime.getKitsuId());
+        statement.setString(2, anime.getTitle());
+        statement.setString(3, anime.getTitleEnJp());
+        statement.setString(4, anime.getTitleJaJp());
+        statement.setString(5, anime.getImage());
+        statement.setString(6, anime.getSynopsis());
+        statement.setString(7, Anime.excerpt(anime.getSynopsis()));
+        statement.setObject(8, anime.getStartDate());
+        statement.setObject(9, anime.getEndDate());
+        statement.setObject(10, anime.getEpisodeCount());
+        statement.setObject(11, anime.getEpisodeLength());
+        statement.setString(12, anime.getSubtype());
+        statement.setString(13, anime.getStatus());
+        statement.setString(14, anime.getAgeRatingGuide());
+        statement.setTimestamp(15, anime.getKitsuUpdatedAt() == null ? null : Timestamp.from(anime.getKitsuUpdatedAt()));
+        statement.setString(16, anime.computeContentHash());
+    }
+
+    /**
+     * Finds the catalog animes without Kitsu ID sharing a title with the fetched animes.
+     *
+     * @param animes the fetched animes.
+     * @return the IDs of the animes without Kitsu ID by title, oldest first.
+     */
+    private Map<String, Deque<Long>> findUnlinkedIdsByTitle(Collection<Anime> animes) {
+        Set<String> titles = animes.stream().map(Anime::getTitle).filter(Objects::nonNull).collect(Collectors.toSet());
+        if (titles.isEmpty()) {
+            return Map.of();
+        }
+        return animeRepository.findByKitsuIdIsNullAndTitleIn(titles).stream()
+                .sorted(Comparator.comparing(AnimeTitleView::getId))
+                .collect(Collectors.groupingBy(AnimeTitleView::getTitle,
+                        Collectors.mapping(AnimeTitleView::getId, Collectors.toCollection(ArrayDeque::new))));
+    }
+
+    private static List<Anime> getPage(Future<List<Anime>> page) {
+        try {
+            return page.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while fetching a Kitsu catalog page", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static double rowsPerSecond(long rows, long start) {
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        return seconds > 0 ? rows / seconds : 0;
+    }
+}
@@ -0,0 +1,312 @@
+package fr.kitsuapirest.service;
+
+import fr.kitsuapirest.exception.KitsuUnavailableException;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.bulkhead.ThreadPoolBulkhead;
+import io.github.resilience4j.bulkhead.ThreadPoolBulkheadConfig;
+import io.github.resilience4j.bulkhead.ThreadPoolBulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.core.IntervalFunction;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedRetryMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedThreadPoolBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedTimeLimiterMetrics;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryConfig;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiter;
+import io.github.resilience4j.timelimiter.TimeLimiterConfig;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The KitsuClient class sends every request to Kitsu, shielding the application from Kitsu slowdowns and outages.
+ * <ul>
+ *     <li>A bulkhead runs the requests on a small pool of threads, which caps the concurrent calls to Kitsu.
+ *     When a call executor is set, such as a virtual thread per call, the calls run on it instead and are capped
+ *     by a semaphore bulkhead, whose permit each call holds until its HTTP request ends.</li>
+ *     <li>The caller waits at most the timeout of the operation for each attempt, whatever the socket timeouts are.
+ *     A timed out attempt is not interrupted though: it keeps its thread, or its bulkhead permit, until the socket
+ *     read timeout.</li>
+ *     <li>Failed requests are retried a few times, with an exponential backoff and jitter. The interactive requests
+ *     (FEED and SEARCH) are not retried after a timeout, so that a page waits about one timeout at most.</li>
+ *     <li>A circuit breaker fails fast while Kitsu keeps failing, so that callers can fall back on cached data.</li>
+ *     <li>Identical concurrent requests are coalesced: the callers share the request in flight and its result,
+ *     so that the load on Kitsu does not grow with our own traffic spikes.</li>
+ * </ul>
+ * Requests which are rejected, time out or still fail once retried throw a KitsuUnavailableException.
+ * The request URLs are relative to the configured Kitsu base URL, which can point to the local Kitsu stub.
+ */
+@Component
+public class KitsuClient {
+
+    public static final String CALL_EXECUTOR = "kitsuCallExecutor";
+
+    private static final Logger logger = LoggerFactory.getLogger(KitsuClient.class);
+
+    private static final String NAME = "kitsu";
+
+    /**
+     * The Operation enum lists the kinds of Kitsu requests, each with its own timeout.
+     * Interactive requests are made while a user waits for a page.
+     */
+    public enum Operation {
+        FEED(Duration.ofSeconds(3), true),
+        SEARCH(Duration.ofSeconds(5), true),
+        CATALOG(Duration.ofSeconds(10), false),
+        SYNC(Duration.ofSeconds(10), false);
+
+        private final Duration defaultTimeout;
+        private final boolean interactive;
+
+        Operation(Duration defaultTimeout, boolean interactive) {
+            this.defaultTimeout = defaultTimeout;
+            this.interactive = interactive;
+        }
+    }
+
+    private final RestTemplate restTemplate;
+    private final String baseUrl;
+    private final ThreadPoolBulkhead bulkhead;
+    private final Bulkhead semaphoreBulkhead;
+    private Executor callExecutor;
+    private final CircuitBreaker circuitBreaker;
+    private final Retry retry;
+    private final Retry interactiveRetry;
+    private final Map<Operation, TimeLimiter> timeLimiters = new EnumMap<>(Operation.class);
+    private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Counter coalescedCalls;
+    private final MeterRegistry meterRegistry;
+
+    public KitsuClient(RestTemplate restTemplate, MeterRegistry meterRegistry, Environment environment,
+                       @Value("${kodo.kitsu.base-url:https://kitsu.io/api/edge}") String baseUrl,
+                       @Value("${kodo.kitsu.max-concurrent-calls:8}") int maxConcurrentCalls,
+                       @Value("${kodo.kitsu.retry.max-attempts:3}") int maxAttempts,
+                       @Value("${kodo.kitsu.retry.initial-backoff:PT0.2S}") Duration initialBackoff,
+                       @Value("${kodo.kitsu.circuit-breaker.open-duration:PT30S}") Duration openDuration) {
+        this.restTemplate = restTemplate;
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.meterRegistry = meterRegistry;
+        this.coalescedCalls = Counter.builder("kodo.kitsu.coalesced")
+                .description("Kitsu requests which joined an identical request in flight")
+                .register(meterRegistry);
+
+        ThreadPoolBulkheadRegistry bulkheadRegistry = ThreadPoolBulkheadRegistry.of(ThreadPoolBulkheadConfig.custom()
+                .coreThreadPoolSize(maxConcurrentCalls)
+                .maxThreadPoolSize(maxConcurrentCalls)
+                .queueCapacity(maxConcurrentCalls * 2)
+                .build());
+        this.bulkhead = bulkheadRegistry.bulkhead(NAME);
+
+        String maxWait = environment.getProperty("kodo.kitsu.bulkhead.max-wait");
+        BulkheadRegistry semaphoreBulkheadRegistry = BulkheadRegistry.of(BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrentCalls)
+                .maxWaitDuration(maxWait == null ? Duration.ofSeconds(1) : Duration.parse(maxWait))
+                .build());
+        this.semaphoreBulkhead = semaphoreBulkheadRegistry.bulkhead(NAME);
+
+        CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .slidingWindowSize(20)
+                .minimumNumberOfCalls(10)
+                .failureRateThreshold(50)
+                .waitDurationInOpenState(openDuration)
+                .permittedNumberOfCallsInHalfOpenState(3)
+                .recordException(KitsuClient::isUpstreamFailure)
+                .build());
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(NAME);
+        circuitBreaker.getEventPublisher().onStateTransition(event ->
+                logger.warn("Kitsu circuit breaker moved from {} to {}", event.getStateTransition().getFromState(),
+                        event.getStateTransition().getToState()));
+
+        RetryConfig retryConfig = RetryConfig.custom()
+                .maxAttempts(maxAttempts)
+                .intervalFunction(IntervalFunction.ofExponentialRandomBackoff(initialBackoff, 2, 0.5))
+                .retryOnException(KitsuClient::isUpstreamFailure)
+                .build();
+        RetryRegistry retryRegistry = RetryRegistry.of(retryConfig);
+        this.retry = retryRegistry.retry(NAME);
+        this.interactiveRetry = retryRegistry.retry(NAME + "-interactive", RetryConfig.from(retryConfig)
+                .retryOnException(exception -> isUpstreamFailure(exception) && !(exception instanceof TimeoutException))
+                .build());
+
+        TimeLimiterRegistry timeLimiterRegistry = TimeLimiterRegistry.ofDefaults();
+        for (Operation operation : Operation.values()) {
+            String key = operation.name().toLowerCase();
+            String timeout = environment.getProperty("kodo.kitsu.timeout." + key);
+            timeLimiters.put(operation, timeLimiterRegistry.timeLimiter(NAME + "-" + key, TimeLimiterConfig.custom()
+                    .timeoutDuration(timeout == null ? operation.defaultTimeout : Duration.parse(timeout))
+                    .cancelRunningFuture(true)
+                    .build()));
+        }
+
+        TaggedThreadPoolBulkheadMetrics.ofThreadPoolBulkheadRegistry(bulkheadRegistry).bindTo(meterRegistry);
+        TaggedBulkheadMetrics.ofBulkheadRegistry(semaphoreBulkheadRegistry).bindTo(meterRegistry);
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakerRegistry).bindTo(meterRegistry);
+        TaggedRetryMetrics.ofRetryRegistry(retryRegistry).bindTo(meterRegistry);
+        TaggedTimeLimiterMetrics.ofTimeLimiterRegistry(timeLimiterRegistry).bindTo(meterRegistry);
+    }
+
+    /**
+     * Runs the Kitsu calls on the given executor instead of the thread pool of the bulkhead.
+     * Each call then holds a permit of the semaphore bulkhead while its HTTP request runs, even once its caller has
+     * timed out, since the request is not interrupted.
+     *
+     * @param callExecutor the executor of the Kitsu calls, such as a virtual thread per task executor.
+     */
+    @Autowired(required = false)
+    public void setCallExecutor(@Qualifier(CALL_EXECUTOR) Executor callExecutor) {
+        this.callExecutor = callExecutor;
+    }
+
+    /**
+     * Sends a GET request to Kitsu.
+     * A caller asking for a URL which is already being requested by the same kind of operation waits for that request
+     * and shares its result. Operations of different kinds never share a request, so that an interactive caller does
+     * not wait for the longer timeouts and retries of a catalog or sync request.
+     *
+     * @param operation    the kind of request, which sets its timeout.
+     * @param path         the URL of the request, relative to the Kitsu base URL, such as /anime?sort=id.
+     * @param responseType the type of the response body.
+     * @param <T>          the type of the response body.
+     * @return the response body, which must not be modified since it may be shared by concurrent callers.
+     * @throws KitsuUnavailableException if the request was rejected, timed out or still failed once retried.
+     */
+    public <T> T get(Operation operation, String path, Class<T> responseType) {
+        String url = baseUrl + path;
+        String key = operation + " " + responseType.getName() + " " + normalize(url);
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(key, flight);
+        if (running != null) {
+            coalescedCalls.increment();
+            try {
+                return responseType.cast(running.join());
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        try {
+            T response = execute(operation, url, responseType);
+            flight.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * Returns the state of the circuit breaker.
+     *
+     * @return CLOSED while Kitsu answers normally.
+     */
+    public CircuitBreaker.State getCircuitBreakerState() {
+        return circuitBreaker.getState();
+    }
+
+    @PreDestroy
+    public void close() throws Exception {
+        bulkhead.close();
+    }
+
+    private <T> T execute(Operation operation, String url, Class<T> responseType) {
+        TimeLimiter timeLimiter = timeLimiters.get(operation);
+        Executor executor = callExecutor;
+        Callable<T> call = executor == null
+                ? () -> timeLimiter.executeFutureSupplier(() ->
+                        bulkhead.executeSupplier(() -> restTemplate.getForObject(url, responseType)).toCompletableFuture())
+                : () -> timeLimiter.executeFutureSupplier(() -> CompletableFuture.supplyAsync(() ->
+                        semaphoreBulkhead.executeSupplier(() -> restTemplate.getForObject(url, responseType)), executor));
+
+        try {
+            return Retry.decorateCallable(operation.interactive ? interactiveRetry : retry,
+                    CircuitBreaker.decorateCallable(circuitBreaker, call)).call();
+        } catch (CallNotPermittedException e) {
+            throw rejected(operation, "circuit_open", e);
+        } catch (BulkheadFullException e) {
+            throw rejected(operation, "bulkhead_full", e);
+        } catch (TimeoutException e) {
+            throw rejected(operation, "timeout", e);
+        } catch (RuntimeException e) {
+            throw isUpstreamFailure(e) ? rejected(operation, "upstream_failure", e) : e;
+        } catch (Exception e) {
+            throw new IllegalStateException("Kitsu request failed", e);
+        }
+    }
+
+    /**
+     * Normalizes a URL so that requests differing only by the order of their query parameters are coalesced.
+     *
+     * @param url the URL of a request.
+     * @return the URL with its query parameters sorted by name.
+     */
+    private static String normalize(String url) {
+        UriComponents components = UriComponentsBuilder.fromUriString(url.trim()).build();
+        UriComponentsBuilder builder = UriComponentsBuilder.newInstance()
+                .scheme(components.getScheme())
+                .host(components.getHost() == null ? null : components.getHost().toLowerCase())
+                .port(components.getPort())
+                .path(components.getPath());
+        new TreeMap<>(components.getQueryParams()).forEach((name, values) -> builder.queryParam(name, values.toArray()));
+        return builder.build().toUriString();
+    }
+
+    private KitsuUnavailableException rejected(Operation operation, String reason, Exception cause) {
+        Counter.builder("kodo.kitsu.rejected")
+                .description("Kitsu requests rejected, timed out or failed once retried")
+                .tag("operation", operation.name().toLowerCase())
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+        return new KitsuUnavailableException("Kitsu is unavailable (" + reason + ")", cause);
+    }
+
+    /**
+     * Tells whether an exception is a failure of Kitsu, as opposed to a rejected or invalid request.
+     * Network errors, timeouts, server errors and rate limiting count as failures.
+     *
+     * @param exception the exception thrown by a request.
+     * @return true if the request may succeed when retried.
+     */
+    private static boolean isUpstreamFailure(Throwable exception) {
+        return exception instanceof ResourceAccessException
+                || exception instanceof TimeoutException
+                || exception instanceof HttpServerErrorException
+                || exception instanceof HttpClientErrorException.TooManyRequests;
+    }
+}
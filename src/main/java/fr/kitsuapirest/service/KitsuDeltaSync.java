@@ -0,0 +1,195 @@
+package fr.kitsuapirest.service;
+
+import fr.kitsuapirest.event.AnimeCatalogChangedEvent;
+import fr.kitsuapirest.model.Anime;
+import fr.kitsuapirest.model.ImportCheckpoint;
+import fr.kitsuapirest.repository.AnimeRepository;
+import fr.kitsuapirest.repository.ImportCheckpointRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The KitsuDeltaSync class keeps the stored animes up to date with Kitsu.
+ * Only the animes which may have changed are fetched again: the animes updated on Kitsu since the last sync,
+ * read from the Kitsu catalog sorted by update time, and the stored animes which are still airing.
+ * Each fetched anime is compared to the stored one by content hash, and only the animes that differ are written.
+ */
+@Component
+public class KitsuDeltaSync {
+
+    private static final Logger logger = LoggerFactory.getLogger(KitsuDeltaSync.class);
+
+    private static final String JOB = "kitsu-delta-sync";
+    private static final int PAGE_SIZE = KitsuApiService.MAX_PAGE_LIMIT;
+    private static final int LOOKUP_BATCH_SIZE = 500;
+    private static final List<String> AIRING_STATUSES = List.of("current", "upcoming", "unreleased", "tba");
+
+    private final KitsuApiService kitsuApiService;
+    private final AnimeRepository animeRepository;
+    private final ImportCheckpointRepository checkpointRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Counter fetchedAnimes;
+    private final Counter updatedAnimes;
+    private final int maxPages;
+
+    public KitsuDeltaSync(KitsuApiService kitsuApiService, AnimeRepository animeRepository,
+                          ImportCheckpointRepository checkpointRepository, ApplicationEventPublisher eventPublisher,
+                          MeterRegistry meterRegistry, @Value("${kodo.sync.max-pages:50}") int maxPages) {
+        this.kitsuApiService = kitsuApiService;
+        this.animeRepository = animeRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.eventPublisher = eventPublisher;
+        this.fetchedAnimes = Counter.builder("kodo.sync.fetched")
+                .description("Animes fetched from Kitsu by the delta sync")
+                .register(meterRegistry);
+        this.updatedAnimes = Counter.builder("kodo.sync.updated")
+                .description("Animes updated by the delta sync")
+                .register(meterRegistry);
+        this.maxPages = maxPages;
+    }
+
+    /**
+     * Synchronizes the animes which may have changed since the last sync.
+     *
+     * @return the number of updated animes.
+     */
+    @Scheduled(fixedDelayString = "${kodo.sync.interval:PT1H}", initialDelayString = "${kodo.sync.initial-delay:PT5M}")
+    public int sync() {
+        long start = System.currentTimeMillis();
+        ImportCheckpoint checkpoint = checkpointRepository.findById(JOB).orElseGet(() -> new ImportCheckpoint(JOB));
+
+        Map<String, Anime> fetched = new LinkedHashMap<>();
+        fetchRecentlyUpdated(checkpoint, fetched);
+        fetchAiring(fetched);
+
+        int updated = apply(new ArrayList<>(fetched.values()));
+
+        checkpoint.setImportedCount(checkpoint.getImportedCount() + updated);
+        checkpoint.setUpdatedAt(Instant.now());
+        checkpointRepository.save(checkpoint);
+
+        fetchedAnimes.increment(fetched.size());
+        updatedAnimes.increment(updated);
+        logger.info("Kitsu delta sync fetched {} animes and updated {} in {} ms", fetched.size(), updated,
+                System.currentTimeMillis() - start);
+        return updated;
+    }
+
+    /**
+     * Fetches the animes updated on Kitsu since the watermark, most recent first, and moves the watermark once the
+     * scan reaches it. The animes updated at the watermark itself are fetched again, since several animes can share
+     * an update time; the content hash then skips the unchanged ones.
+     * A scan stopped by the page limit or by a failure keeps the watermark and records the offset it reached, so that
+     * the next sync resumes there: the animes updated meanwhile only move to the first pages, read by the sync after.
+     * The first sync only records the current watermark, since every anime was fetched by the catalog import.
+     *
+     * @param checkpoint the checkpoint of the sync, updated with the new watermark or the offset to resume from.
+     * @param fetched    the fetched animes, by Kitsu id.
+     */
+    private void fetchRecentlyUpdated(ImportCheckpoint checkpoint, Map<String, Anime> fetched) {
+        Instant watermark = checkpoint.getWatermark();
+        Instant newWatermark = checkpoint.getPendingWatermark() != null ? checkpoint.getPendingWatermark() : watermark;
+        int offset = checkpoint.getNextOffset();
+
+        try {
+            for (int page = 0; page < maxPages; page++) {
+                List<Anime> animes = kitsuApiService.fetchRecentlyUpdatedPage(offset, PAGE_SIZE);
+                for (Anime anime : animes) {
+                    Instant updatedAt = anime.getKitsuUpdatedAt();
+                    if (updatedAt == null) {
+                        continue;
+                    }
+                    if (newWatermark == null || updatedAt.isAfter(newWatermark)) {
+                        newWatermark = updatedAt;
+                    }
+                    if (watermark == null || updatedAt.isBefore(watermark)) {
+                        completeScan(checkpoint, newWatermark);
+                        return;
+                    }
+                    fetched.put(anime.getKitsuId(), anime);
+                }
+                if (animes.size() < PAGE_SIZE) {
+                    completeScan(checkpoint, newWatermark);
+                    return;
+                }
+                offset += PAGE_SIZE;
+            }
+            logger.warn("Kitsu delta sync stopped after {} pages of updated animes, the next sync resumes at offset {}",
+                    maxPages, offset);
+        } catch (RuntimeException e) {
+            logger.warn("Kitsu delta sync stopped at offset {} of the updated animes, the next sync resumes there", offset, e);
+        }
+
+        checkpoint.setPendingWatermark(newWatermark);
+        checkpoint.setNextOffset(offset);
+    }
+
+    private static void completeScan(ImportCheckpoint checkpoint, Instant newWatermark) {
+        checkpoint.setWatermark(newWatermark);
+        checkpoint.setPendingWatermark(null);
+        checkpoint.setNextOffset(0);
+    }
+
+    /**
+     * Fetches the stored animes which are still airing and were not fetched yet.
+     *
+     * @param fetched the fetched animes, by Kitsu id.
+     */
+    private void fetchAiring(Map<String, Anime> fetched) {
+        List<String> kitsuIds = animeRepository.findKitsuIdsByStatusIn(AIRING_STATUSES).stream()
+                .filter(kitsuId -> !fetched.containsKey(kitsuId))
+                .toList();
+
+        for (int from = 0; from < kitsuIds.size(); from += PAGE_SIZE) {
+            List<String> chunk = kitsuIds.subList(from, Math.min(from + PAGE_SIZE, kitsuIds.size()));
+            for (Anime anime : kitsuApiService.fetchAnimesByKitsuIds(chunk)) {
+                fetched.put(anime.getKitsuId(), anime);
+            }
+        }
+    }
+
+    /**
+     * Writes the fetched animes whose content differs from the stored ones.
+     * Animes which are not stored are ignored: adding animes is the job of the catalog import.
+     *
+     * @param fetched the fetched animes.
+     * @return the number of updated animes.
+     */
+    private int apply(List<Anime> fetched) {
+        List<Anime> changed = new ArrayList<>();
+
+        for (int from = 0; from < fetched.size(); from += LOOKUP_BATCH_SIZE) {
+            List<Anime> chunk = fetched.subList(from, Math.min(from + LOOKUP_BATCH_SIZE, fetched.size()));
+            Map<String, Anime> stored = new LinkedHashMap<>();
+            animeRepository.findByKitsuIdIn(chunk.stream().map(Anime::getKitsuId).toList())
+                    .forEach(anime -> stored.put(anime.getKitsuId(), anime));
+
+            for (Anime anime : chunk) {
+                Anime current = stored.get(anime.getKitsuId());
+                if (current != null && !Objects.equals(current.getContentHash(), anime.computeContentHash())) {
+                    current.copySyncedColumns(anime);
+                    changed.add(current);
+                }
+            }
+        }
+
+        if (!changed.isEmpty()) {
+            List<Long> ids = animeRepository.saveAll(changed).stream().map(Anime::getId).toList();
+            eventPublisher.publishEvent(new AnimeCatalogChangedEvent(this, AnimeCatalogChangedEvent.Type.UPDATED, ids));
+        }
+        return changed.size();
+    }
+}
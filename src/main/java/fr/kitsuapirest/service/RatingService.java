@@ -1,5 +1,6 @@
 package fr.kitsuapirest.service;
 
+import fr.kitsuapirest.dto.AnimeCard;
 import fr.kitsuapirest.exception.NotFoundException;
 import fr.kitsuapirest.exception.UnauthorizedException;
 import fr.kitsuapirest.model.Anime;
@@ -8,6 +9,7 @@ import fr.kitsuapirest.model.User;
 import fr.kitsuapirest.repository.AnimeRepository;
 import fr.kitsuapirest.repository.RatingRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import java.security.Principal;
@@ -156,6 +158,17 @@ public class RatingService {
         return topRatedAnimes;
     }
 
+    /**
+     * Retrieves the top rated animes for a user, as anime cards.
+     *
+     * @param principal the principal object representing the current user.
+     * @return a list of top rated anime cards for the user.
+     */
+    public List<AnimeCard> getTopRatedAnimeCards(Principal principal) {
+        User user = userService.getUserByUsername(principal.getName());
+        return ratingRepository.findTopRatedCardsByUserId(user.getId(), PageRequest.of(0, 5));
+    }
+
     /**
      * Calculates the average rating for an anime by its ID.
      *
@@ -1,5 +1,6 @@
 package fr.kitsuapirest.service;
 
+import fr.kitsuapirest.dto.AnimeCard;
 import fr.kitsuapirest.exception.NotFoundException;
 import fr.kitsuapirest.model.Anime;
 import fr.kitsuapirest.model.User;
@@ -110,6 +111,16 @@ public class WatchlistService {
         return animes;
     }
 
+    /**
+     * Retrieves the watchlist of a user by user ID, as anime cards.
+     *
+     * @param userId the ID of the user.
+     * @return the list of anime cards in the watchlist.
+     */
+    public List<AnimeCard> getWatchlistCardsByUserId(Integer userId) {
+        return watchlistRepository.findCardsByUserId(userId);
+    }
+
     /**
      * Checks if an anime is in the user's watchlist.
      *
@@ -0,0 +1,110 @@
+package fr.kitsuapirest.service;
+
+import fr.kitsuapirest.dto.UserChangePwdForm;
+import fr.kitsuapirest.dto.UserLoginForm;
+import fr.kitsuapirest.dto.UserRegistrationForm;
+import fr.kitsuapirest.model.User;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The WebFacade class is the in-process entry point of the MVC pages into the anime and user services.
+ * The pages call it directly instead of calling the REST API of the application over HTTP, which held a second
+ * request thread and serialized every payload twice.
+ */
+@Service
+public class WebFacade {
+
+    private static final String FULL_VIEW = "full";
+
+    private final AnimeService animeService;
+    private final UserService userService;
+
+    public WebFacade(AnimeService animeService, UserService userService) {
+        this.animeService = animeService;
+        this.userService = userService;
+    }
+
+    /**
+     * Searches the animes as the GET /api/animes endpoint does: blank parameters are ignored, a cursor parameter
+     * switches to keyset pagination, and the animes are returned as cards unless the view parameter is full.
+     *
+     * @param parameters the parameters for filtering, sorting and paging the anime list.
+     * @return the matching animes, or an empty list if the cursor is invalid.
+     */
+    public List<?> searchAnimes(Map<String, String> parameters) {
+        Map<String, String> filters = new HashMap<>();
+        parameters.forEach((key, value) -> {
+            if (value != null && !value.isEmpty()) {
+                filters.put(key, value);
+            }
+        });
+
+        boolean fullView = FULL_VIEW.equals(filters.get("view"));
+        if (filters.containsKey("cursor")) {
+            try {
+                return fullView ? animeService.scrollAnimes(filters).getContent()
+                        : animeService.scrollAnimeCards(filters).getContent();
+            } catch (IllegalArgumentException e) {
+                return List.of();
+            }
+        }
+        return fullView ? animeService.getAllAnimes(filters).getContent()
+                : animeService.getAnimeCards(filters).getContent();
+    }
+
+    /**
+     * Retrieves the authenticated user.
+     *
+     * @param username the name of the authenticated user, or null.
+     * @return the user, or null if no user is authenticated.
+     */
+    public User getAuthenticatedUser(String username) {
+        return username == null ? null : userService.getUserByUsername(username);
+    }
+
+    /**
+     * Authenticates a user with the credentials of the login form.
+     *
+     * @param loginForm the login form.
+     * @return an optional containing the authenticated user, or an empty optional if the credentials are invalid.
+     */
+    public Optional<User> login(UserLoginForm loginForm) {
+        return userService.authenticate(loginForm.getUsername(), loginForm.getPassword());
+    }
+
+    /**
+     * Creates a user from the signup form.
+     *
+     * @param userForm the signup form.
+     * @return the created user.
+     */
+    public User signUp(UserRegistrationForm userForm) {
+        User newUser = new User();
+        newUser.setFirstname(userForm.getFirstname());
+        newUser.setLastname(userForm.getLastname());
+        newUser.setUsername(userForm.getUsername());
+        newUser.setEmail(userForm.getEmail());
+        newUser.setPassword(userForm.getPassword());
+        return userService.createUser(newUser);
+    }
+
+    /**
+     * Changes the password of a user from the change password form.
+     *
+     * @param username      the name of the user.
+     * @param changePwdForm the change password form.
+     * @throws IllegalArgumentException if the new password is not confirmed or the current password is invalid.
+     */
+    public void changePassword(String username, UserChangePwdForm changePwdForm) {
+        if (!changePwdForm.getNewPassword().equals(changePwdForm.getConfirmPassword())) {
+            throw new IllegalArgumentException("The new password is not confirmed");
+        }
+        userService.changePassword(userService.getUserIdByUsername(username),
+                changePwdForm.getPassword(), changePwdForm.getNewPassword());
+    }
+}
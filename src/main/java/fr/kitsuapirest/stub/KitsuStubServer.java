@@ -0,0 +1,299 @@
+package fr.kitsuapirest.stub;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * The KitsuStubServer class serves recorded Kitsu responses from a local HTTP server, so that the pages and jobs
+ * calling Kitsu can be load tested without network access and with repeatable upstream behavior.
+ * It is only started with the kitsu-stub profile, which also points the Kitsu base URL at it.
+ * <p>
+ * The animes are loaded from the JSON:API fixtures, on the classpath or on disk. The /anime endpoint supports
+ * the id and text filters, sorting on the id or an attribute, and the offset pagination of Kitsu. The season filters
+ * are ignored, so that the home page feeds are never empty. Every response waits for a latency drawn from the
+ * configured distribution, and a configurable share of the responses fails with an error status.
+ */
+@Component
+@Profile("kitsu-stub")
+public class KitsuStubServer {
+
+    private static final Logger logger = LoggerFactory.getLogger(KitsuStubServer.class);
+
+    private static final String CONTENT_TYPE = "application/vnd.api+json";
+    private static final int DEFAULT_PAGE_LIMIT = 10;
+    private static final int MAX_PAGE_LIMIT = 20;
+
+    /**
+     * The LatencyDistribution enum lists the distributions of the stub response times.
+     */
+    public enum LatencyDistribution {
+        /** Every response waits for the median. */
+        FIXED,
+        /** Response times are spread uniformly between zero and twice the median. */
+        UNIFORM,
+        /** Response times follow a log-normal distribution, with the configured median and 99th percentile. */
+        LOGNORMAL
+    }
+
+    private final ObjectMapper objectMapper;
+    private final List<JsonNode> animes;
+    private final LatencyDistribution latencyDistribution;
+    private final Duration latencyMedian;
+    private final Duration latencyP99;
+    private final double errorRate;
+    private final int errorStatus;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public KitsuStubServer(ObjectMapper objectMapper,
+                           @Value("${kodo.kitsu.stub.port:8099}") int port,
+                           @Value("${kodo.kitsu.stub.fixtures:classpath:kitsu-stub/*.json}") String fixtures,
+                           @Value("${kodo.kitsu.stub.threads:16}") int threads,
+                           @Value("${kodo.kitsu.stub.latency.distribution:LOGNORMAL}") LatencyDistribution latencyDistribution,
+                           @Value("${kodo.kitsu.stub.latency.median:PT0.08S}") Duration latencyMedian,
+                           @Value("${kodo.kitsu.stub.latency.p99:PT0.5S}") Duration latencyP99,
+                           @Value("${kodo.kitsu.stub.error-rate:0}") double errorRate,
+                           @Value("${kodo.kitsu.stub.error-status:503}") int errorStatus) throws IOException {
+        this.objectMapper = objectMapper;
+        this.animes = loadFixtures(objectMapper, fixtures);
+        this.latencyDistribution = latencyDistribution;
+        this.latencyMedian = latencyMedian;
+        this.latencyP99 = latencyP99;
+        this.errorRate = errorRate;
+        this.errorStatus = errorStatus;
+
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "kitsu-stub");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/api/edge/anime", this::handle);
+        server.setExecutor(executor);
+        server.start();
+        logger.info("Kitsu stub serving {} animes on port {}", animes.size(), getPort());
+    }
+
+    /**
+     * Returns the port of the stub, which is chosen by the system when the configured port is 0.
+     *
+     * @return the local port.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @PreDestroy
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            sleep(sampleLatency());
+
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                send(exchange, 405, null);
+            } else if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                send(exchange, errorStatus, errors(errorStatus));
+            } else {
+                send(exchange, 200, collection(exchange.getRequestURI()));
+            }
+        }
+    }
+
+    /**
+     * Answers a request to the anime collection.
+     *
+     * @param uri the URI of the request.
+     * @return the page of animes.
+     */
+    private ObjectNode collection(URI uri) {
+        Map<String, List<String>> params = queryParams(uri);
+
+        List<JsonNode> matches = new ArrayList<>(animes);
+        String ids = first(params, "filter[id]");
+        if (ids != null) {
+            Set<String> wanted = Arrays.stream(ids.split(",")).map(String::trim).collect(Collectors.toSet());
+            matches.removeIf(anime -> !wanted.contains(anime.path("id").asText()));
+        }
+        String text = first(params, "filter[text]");
+        if (text != null) {
+            String needle = text.toLowerCase(Locale.ROOT);
+            matches.removeIf(anime -> !titlesOf(anime).contains(needle));
+        }
+        String sort = first(params, "sort");
+        if (sort != null) {
+            matches.sort(comparator(sort));
+        }
+
+        int limit = Math.min(parseInt(first(params, "page[limit]"), DEFAULT_PAGE_LIMIT), MAX_PAGE_LIMIT);
+        int offset = Math.max(parseInt(first(params, "page[offset]"), 0), 0);
+
+        ObjectNode response = objectMapper.createObjectNode();
+        ArrayNode data = response.putArray("data");
+        matches.stream().skip(offset).limit(limit).forEach(data::add);
+        response.putObject("meta").put("count", matches.size());
+        if (offset + limit < matches.size()) {
+            params.put("page[offset]", List.of(String.valueOf(offset + limit)));
+            UriComponentsBuilder next = UriComponentsBuilder.fromPath(uri.getPath());
+            params.forEach((name, values) -> next.queryParam(name, values.toArray()));
+            response.putObject("links").put("next", next.build().toUriString());
+        }
+        return response;
+    }
+
+    /**
+     * Sorts the animes like Kitsu, on the id or an attribute, descending when the field starts with a minus.
+     * Animes without the attribute come last.
+     *
+     * @param sort the sort parameter.
+     * @return the comparator.
+     */
+    private static Comparator<JsonNode> comparator(String sort) {
+        boolean descending = sort.startsWith("-");
+        String field = descending ? sort.substring(1) : sort;
+
+        if ("id".equals(field)) {
+            Comparator<JsonNode> byId = Comparator.comparingLong(anime -> parseInt(anime.path("id").asText(), 0));
+            return descending ? byId.reversed() : byId;
+        }
+        Function<JsonNode, String> value = anime -> {
+            JsonNode attribute = anime.path("attributes").path(field);
+            return attribute.isValueNode() && !attribute.isNull() ? attribute.asText() : null;
+        };
+        // Kitsu sends the average rating as a string, which must be compared as a number
+        Comparator<String> byValue = "averageRating".equals(field) ? Comparator.comparing(Double::valueOf) : Comparator.naturalOrder();
+        return Comparator.comparing(value, Comparator.nullsLast(descending ? byValue.reversed() : byValue));
+    }
+
+    private static String titlesOf(JsonNode anime) {
+        StringBuilder titles = new StringBuilder();
+        anime.path("attributes").path("titles").forEach(title -> titles.append(title.asText()).append('\n'));
+        return titles.toString().toLowerCase(Locale.ROOT);
+    }
+
+    private ObjectNode errors(int status) {
+        ObjectNode response = objectMapper.createObjectNode();
+        response.putArray("errors").addObject()
+                .put("status", String.valueOf(status))
+                .put("title", "Simulated Kitsu error");
+        return response;
+    }
+
+    private void send(HttpExchange exchange, int status, JsonNode body) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+
+    private long sampleLatency() {
+        long median = latencyMedian.toMillis();
+        return switch (latencyDistribution) {
+            case FIXED -> median;
+            case UNIFORM -> ThreadLocalRandom.current().nextLong(2 * median + 1);
+            case LOGNORMAL -> {
+                // The 99th percentile of a log-normal distribution is median * exp(2.326 * sigma)
+                double sigma = Math.log(Math.max(latencyP99.toMillis(), median + 1) / (double) Math.max(median, 1)) / 2.326;
+                yield Math.round(Math.max(median, 1) * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian()));
+            }
+        };
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Map<String, List<String>> queryParams(URI uri) {
+        Map<String, List<String>> params = new LinkedHashMap<>();
+        if (uri.getRawQuery() == null) {
+            return params;
+        }
+        for (String param : uri.getRawQuery().split("&")) {
+            int separator = param.indexOf('=');
+            String name = URLDecoder.decode(separator < 0 ? param : param.substring(0, separator), StandardCharsets.UTF_8);
+            String value = separator < 0 ? "" : URLDecoder.decode(param.substring(separator + 1), StandardCharsets.UTF_8);
+            params.computeIfAbsent(name, key -> new ArrayList<>()).add(value);
+        }
+        return params;
+    }
+
+    private static String first(Map<String, List<String>> params, String name) {
+        List<String> values = params.get(name);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+
+    private static int parseInt(String value, int defaultValue) {
+        try {
+            return value == null ? defaultValue : Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private static List<JsonNode> loadFixtures(ObjectMapper objectMapper, String fixtures) throws IOException {
+        List<JsonNode> animes = new ArrayList<>();
+        for (Resource resource : new PathMatchingResourcePatternResolver().getResources(fixtures)) {
+            try (InputStream input = resource.getInputStream()) {
+                JsonNode data = objectMapper.readTree(input).path("data");
+                if (data.isArray()) {
+                    data.forEach(animes::add);
+                } else if (data.isObject()) {
+                    animes.add(data);
+                }
+            }
+        }
+        return animes;
+    }
+}
@@ -0,0 +1,49 @@
+package fr.kitsuapirest.config;
+
+import fr.kitsuapirest.service.HomePageService;
+import fr.kitsuapirest.service.KitsuClient;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.scheduling.annotation.AsyncAnnotationBeanPostProcessor;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The VirtualThreadsConfig class runs the request handlers, the asynchronous tasks, the home page sections and the
+ * Kitsu calls on virtual threads, so that the requests blocked on the database or on Kitsu no longer hold a platform
+ * thread each. The concurrency is then limited by the Hikari pool and by the Kitsu bulkhead, not by the thread pools.
+ * It is compiled by the virtual-threads Maven profile only, on JDK 21 or later.
+ */
+@Configuration
+@Profile("virtual-threads")
+public class VirtualThreadsConfig {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadsProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("http-", 0).factory()));
+    }
+
+    @Bean(name = {TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME,
+            AsyncAnnotationBeanPostProcessor.DEFAULT_TASK_EXECUTOR_BEAN_NAME})
+    public AsyncTaskExecutor applicationTaskExecutor() {
+        return new TaskExecutorAdapter(Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("task-", 0).factory()));
+    }
+
+    @Bean(name = HomePageService.SECTION_EXECUTOR, destroyMethod = "shutdownNow")
+    public ExecutorService homePageSectionExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("home-page-", 0).factory());
+    }
+
+    @Bean(name = KitsuClient.CALL_EXECUTOR, destroyMethod = "shutdownNow")
+    public ExecutorService kitsuCallExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("kitsu-call-", 0).factory());
+    }
+}
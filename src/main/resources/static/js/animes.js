@@ -1,92 +1,138 @@
 $(document).ready(function () {
-    var currentPage = 1;
+    var currentPage = 0;
     var pageSize = 12;
+    var totalCount = 0;
+    var parameters = {};
 
-    function loadPage(pageNumber, elements) {
-        var start = (pageNumber - 1) * pageSize;
-        var end = start + pageSize;
+    function appendAnimes(data) {
+        var container = $("#anime-container");
+
+        data.forEach(function(anime) {
+            var animeLink = $("<a>", { href: "/animes/" + anime.id }); // Ajouter le lien avec l'ID de l'anime
+            var animeCard = $("<div>", { class: "anime-card" }).append(animeLink);
+            var animeImage = $("<img>", { src: "/images/anime/" + anime.id + "/small", alt: "Image Anime", loading: "lazy" }); // Affiche réduite servie par l'application
+            var animeCardContent = $("<div>", { class: "anime-card-content" });
+            var animeTitle = $("<h3>").text(anime.title);
+            var animeSynopsis = $("<p>").text(anime.synopsisExcerpt);
 
-        elements.slice(start, end).show();
+            animeCardContent.append(animeTitle, animeSynopsis);
+            animeLink.append(animeImage, animeCardContent); // Ajouter le contenu dans le lien
 
-        $("#load-more").prop("disabled", pageNumber >= Math.ceil(elements.length / pageSize));
+            container.append(animeCard);
+        });
+    }
+
+    // Charger une page depuis l'API, le filtrage et la pagination sont faits côté serveur
+    function loadPage(pageNumber) {
+        var query = $.extend({}, parameters, { page: pageNumber, size: pageSize });
+
+        $.get("/api/animes?" + $.param(query), function(data, status, xhr) {
+            totalCount = parseInt(xhr.getResponseHeader("X-Total-Count"), 10) || 0;
+            currentPage = pageNumber;
+
+            appendAnimes(data);
+
+            $("#load-more").prop("disabled", (currentPage + 1) * pageSize >= totalCount);
+        });
     }
 
     function filterAnimes() {
+        parameters = {};
+
         var title = $("#title-input").val();
         var subtype = $("#subtype-input").val();
         var sortBy = $("#sort-by-input").val();
         var status = $("#status-input").val();
+        var ageRatingGuide = $("#age-rating-input").val();
+        var startYear = $("#start-year-input").val();
+
+        // Ne transmettre que les champs de recherche renseignés
+        if (title !== "") parameters.title = title;
+        if (subtype !== "") parameters.subtype = subtype;
+        if (sortBy !== "") parameters.sortBy = sortBy;
+        if (status !== "") parameters.status = status;
+        if (ageRatingGuide !== "") parameters.ageRatingGuide = ageRatingGuide;
+        if (startYear !== "") parameters.startYear = startYear;
+
+        $("#anime-container").empty();
+        loadPage(0);
+        loadFacets();
+    }
 
-        // Si tous les champs de recherche sont vides, charger tous les animes
-        if (title === "" && subtype === "" && sortBy === "" && status === "") {
-            loadAllAnimes();
-            return;
-        }
-
-        var parameters = {
-            title: title,
-            subtype: subtype,
-            sortBy: sortBy,
-            status: status
-        };
+    // Retrouver le nombre de résultats d'une valeur sans tenir compte de la casse
+    function countOf(counts, value) {
+        var key = Object.keys(counts).find(function(k) {
+            return k.toLowerCase() === value.toLowerCase();
+        });
+        return key ? counts[key] : 0;
+    }
 
-        var queryString = $.param(parameters);
-        var container = $("#anime-container");
-        container.empty();
-
-        $.get("/api/animes?" + queryString, function(data) {
-            data.forEach(function(anime) {
-                var animeLink = $("<a>", { href: "/animes/" + anime.id }); // Ajouter le lien avec l'ID de l'anime
-                var animeCard = $("<div>", { class: "anime-card" }).append(animeLink);
-                var animeImage = $("<img>", { src: anime.image, alt: "Image Anime" });
-                var animeCardContent = $("<div>", { class: "anime-card-content" });
-                var animeTitle = $("<h3>").text(anime.title);
-                var animeSynopsis = $("<p>").text(anime.synopsis);
-
-                animeCardContent.append(animeTitle, animeSynopsis);
-                animeLink.append(animeImage, animeCardContent); // Ajouter le contenu dans le lien
-                animeCard.hide();
-
-                container.append(animeCard);
-            });
+    // Afficher le nombre de résultats à côté des options fixes
+    function updateCounts(select, counts) {
+        select.find("option").each(function() {
+            var option = $(this);
+            if (option.val() === "") return;
+            if (!option.data("label")) option.data("label", option.text());
+            option.text(option.data("label") + " (" + countOf(counts, option.val()) + ")");
+        });
+    }
 
-            var elements = $(".anime-card");
-            loadPage(currentPage, elements);
+    // Reconstruire les options à partir des valeurs du catalogue
+    function replaceOptions(select, counts) {
+        var selected = select.val();
+        select.find("option").not(":first").remove();
+        Object.keys(counts).forEach(function(value) {
+            select.append($("<option>", { value: value }).text(value + " (" + counts[value] + ")"));
         });
+        if (selected !== "" && countOf(counts, selected) === 0) {
+            select.append($("<option>", { value: selected }).text(selected + " (0)"));
+        }
+        select.val(selected);
     }
 
-    function loadAllAnimes() {
-        $.get("/api/animes", function(data) {
-            data.forEach(function(anime) {
-                var animeLink = $("<a>", { href: "/animes/" + anime.id }); // Ajouter le lien avec l'ID de l'anime
-                var animeCard = $("<div>", { class: "anime-card" }).append(animeLink);
-                var animeImage = $("<img>", { src: anime.image, alt: "Image Anime" });
-                var animeCardContent = $("<div>", { class: "anime-card-content" });
-                var animeTitle = $("<h3>").text(anime.title);
-                var animeSynopsis = $("<p>").text(anime.synopsis);
-
-                animeCardContent.append(animeTitle, animeSynopsis);
-                animeLink.append(animeImage, animeCardContent); // Ajouter le contenu dans le lien
-                animeCard.hide();
-
-                $("#anime-container").append(animeCard);
-            });
+    // Charger le nombre de résultats de chaque filtre pour la recherche courante
+    function loadFacets() {
+        var query = $.extend({}, parameters);
+        delete query.sortBy;
 
-            var elements = $(".anime-card");
-            loadPage(currentPage, elements);
+        $.get("/api/animes/facets?" + $.param(query), function(facets) {
+            updateCounts($("#subtype-input"), facets.subtype);
+            updateCounts($("#status-input"), facets.status);
+            replaceOptions($("#age-rating-input"), facets.ageRatingGuide);
+            replaceOptions($("#start-year-input"), facets.startYear);
         });
     }
 
     $("#search-form").on("submit", function(e) {
         e.preventDefault();
-        currentPage = 1; // Réinitialiser la page courante à 1 lors de la soumission d'une nouvelle recherche
-        filterAnimes();
+        filterAnimes(); // Repartir de la première page lors d'une nouvelle recherche
     });
 
     $("#load-more").click(function() {
-        var elements = $(".anime-card");
-        currentPage++;
-        loadPage(currentPage, elements);
+        if ((currentPage + 1) * pageSize < totalCount) {
+            loadPage(currentPage + 1);
+        }
+    });
+
+    // Suggestions de titres pendant la saisie
+    var suggestTimeout = null;
+    $("#title-input").on("input", function() {
+        var text = $(this).val().trim();
+        clearTimeout(suggestTimeout);
+
+        if (text === "") {
+            $("#title-suggestions").empty();
+            return;
+        }
+
+        suggestTimeout = setTimeout(function() {
+            $.get("/api/animes/suggest?" + $.param({ q: text, limit: 8 }), function(data) {
+                var suggestions = $("#title-suggestions").empty();
+                data.forEach(function(suggestion) {
+                    suggestions.append($("<option>", { value: suggestion.title }));
+                });
+            });
+        }, 150);
     });
 
     $("#advanced-search-toggle").click(function() {
@@ -94,5 +140,6 @@ $(document).ready(function () {
     });
 
     // Chargement initial des animes
-    loadAllAnimes();
+    loadPage(0);
+    loadFacets();
 });
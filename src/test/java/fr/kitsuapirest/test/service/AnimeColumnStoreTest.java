@@ -0,0 +1,211 @@
+package fr.kitsuapirest.test.service;
+
+import fr.kitsuapirest.dto.AnimeColumnsView;
+import fr.kitsuapirest.dto.AnimeFacets;
+import fr.kitsuapirest.dto.AnimeQuery;
+import fr.kitsuapirest.event.AnimeCatalogChangedEvent;
+import fr.kitsuapirest.repository.AnimeRepository;
+import fr.kitsuapirest.service.AnimeColumnStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AnimeColumnStoreTest {
+
+    private AnimeColumnStore.Snapshot snapshot;
+
+    @BeforeEach
+    void setUp() {
+        snapshot = AnimeColumnStore.Snapshot.build(Arrays.asList(
+                columns(3L, 12, LocalDate.of(2020, 4, 1), "TV", "finished", "PG"),
+                columns(1L, 24, LocalDate.of(2018, 1, 1), "TV", "current", "R"),
+                columns(2L, 1, null, "movie", "finished", "PG"),
+                columns(4L, null, LocalDate.of(2022, 10, 1), "tv", "finished", null)
+        ));
+    }
+
+    @Test
+    void testQueryFiltersIgnoringCase() {
+        assertEquals(Arrays.asList(1L, 3L, 4L), query(Map.of("subtype", "TV")).getContent());
+        assertEquals(Arrays.asList(3L, 4L), query(Map.of("subtype", "tv", "status", "Finished")).getContent());
+        assertEquals(List.of(), query(Map.of("subtype", "OVA")).getContent());
+    }
+
+    @Test
+    void testQuerySortsNullsLikeTheDatabase() {
+        assertEquals(Arrays.asList(2L, 1L, 3L, 4L), query(Map.of("sortBy", "oldest")).getContent());
+        assertEquals(Arrays.asList(4L, 3L, 1L, 2L), query(Map.of("sortBy", "newest")).getContent());
+        assertEquals(Arrays.asList(4L, 2L, 3L, 1L), query(Map.of("sortBy", "lowest")).getContent());
+        assertEquals(Arrays.asList(1L, 3L, 2L, 4L), query(Map.of("sortBy", "highest")).getContent());
+    }
+
+    @Test
+    void testQueryPages() {
+        Page<Long> page = query(Map.of("sortBy", "oldest", "page", "1", "size", "3"));
+
+        assertEquals(List.of(4L), page.getContent());
+        assertEquals(4, page.getTotalElements());
+        assertEquals(List.of(3L), query(Map.of("page", "2", "size", "1")).getContent());
+    }
+
+    @Test
+    void testQueryFiltersByAgeRatingAndYear() {
+        assertEquals(Arrays.asList(2L, 3L), query(Map.of("ageRatingGuide", "pg")).getContent());
+        assertEquals(List.of(3L), query(Map.of("startYear", "2020")).getContent());
+    }
+
+    @Test
+    void testFacetsExcludeTheirOwnFilter() {
+        AnimeFacets facets = snapshot.facets(AnimeQuery.fromParameters(Map.of("subtype", "TV", "status", "finished")), null);
+
+        assertEquals(Map.of("TV", 2, "movie", 1), facets.getSubtype());
+        assertEquals(Map.of("finished", 2, "current", 1), facets.getStatus());
+        assertEquals(Map.of("PG", 1), facets.getAgeRatingGuide());
+        assertEquals(Arrays.asList("2022", "2020"), new ArrayList<>(facets.getStartYear().keySet()));
+    }
+
+    @Test
+    void testFacetsRestrictedToTitleMatches() {
+        AnimeFacets facets = snapshot.facets(AnimeQuery.fromParameters(Map.of()), Arrays.asList(1L, 2L, 42L));
+
+        assertEquals(Map.of("TV", 1, "movie", 1), facets.getSubtype());
+        assertEquals(Map.of("2018", 1), facets.getStartYear());
+    }
+
+    @Test
+    void testChangesProduceNewSnapshots() {
+        AnimeColumnStore.Snapshot changed = snapshot
+                .withAnimes(List.of(columns(5L, 2, null, "TV", "current", "G")))
+                .withAnimes(List.of(columns(3L, 12, LocalDate.of(2020, 4, 1), "movie", "finished", "PG")))
+                .withoutAnimes(List.of(1L));
+
+        assertEquals(Arrays.asList(4L, 5L), query(changed, Map.of("subtype", "TV")).getContent());
+        assertEquals(Arrays.asList(2L, 3L), query(changed, Map.of("subtype", "movie")).getContent());
+        assertEquals(Arrays.asList(1L, 3L, 4L), query(Map.of("subtype", "TV")).getContent());
+    }
+
+    @Test
+    void testManyDistinctValues() {
+        List<AnimeColumnsView> animes = new ArrayList<>();
+        for (long id = 1; id <= 1000; id++) {
+            animes.add(columns(id, 12, null, "TV", "finished", "Guide " + id));
+        }
+
+        AnimeColumnStore.Snapshot large = AnimeColumnStore.Snapshot.build(animes);
+
+        assertEquals(List.of(777L), query(large, Map.of("ageRatingGuide", "guide 777")).getContent());
+        assertEquals(1000, large.facets(AnimeQuery.fromParameters(new HashMap<>()), null).getAgeRatingGuide().size());
+    }
+
+    @Test
+    void testChangesDuringTheFirstBuildAreApplied() {
+        AnimeRepository animeRepository = mock(AnimeRepository.class);
+        AnimeColumnStore store = new AnimeColumnStore(animeRepository, true);
+        when(animeRepository.findColumnsByIdIn(List.of(5L))).thenReturn(List.of(columns(5L, 2, null, "TV", "current", "G")));
+        when(animeRepository.findAllColumnsBy()).thenAnswer(invocation -> {
+            store.onCatalogChanged(AnimeCatalogChangedEvent.added(this, 5L));
+            return List.of(columns(1L, 24, null, "TV", "current", "R"));
+        });
+
+        store.rebuild();
+
+        assertEquals(Arrays.asList(1L, 5L), store.query(AnimeQuery.fromParameters(new HashMap<>())).getContent());
+    }
+
+    @Test
+    void testConcurrentChangesOfAnAnimeApplyInOrder() throws Exception {
+        AnimeRepository animeRepository = mock(AnimeRepository.class);
+        AnimeColumnStore store = new AnimeColumnStore(animeRepository, true);
+        when(animeRepository.findAllColumnsBy()).thenReturn(List.of(columns(1L, 24, null, "TV", "current", "R")));
+        store.rebuild();
+
+        CountDownLatch firstReadStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstRead = new CountDownLatch(1);
+        when(animeRepository.findColumnsByIdIn(List.of(1L)))
+                .thenAnswer(invocation -> {
+                    firstReadStarted.countDown();
+                    releaseFirstRead.await(5, TimeUnit.SECONDS);
+                    return List.of(columns(1L, 24, null, "movie", "current", "R"));
+                })
+                .thenReturn(List.of(columns(1L, 24, null, "OVA", "current", "R")));
+
+        ExecutorService writers = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> first = writers.submit(() -> store.onCatalogChanged(updated(1L)));
+            assertTrue(firstReadStarted.await(5, TimeUnit.SECONDS));
+            Future<?> second = writers.submit(() -> store.onCatalogChanged(updated(1L)));
+            Thread.sleep(100);
+            releaseFirstRead.countDown();
+            first.get(5, TimeUnit.SECONDS);
+            second.get(5, TimeUnit.SECONDS);
+        } finally {
+            writers.shutdownNow();
+        }
+
+        assertEquals(List.of(1L), store.query(AnimeQuery.fromParameters(new HashMap<>(Map.of("subtype", "OVA")))).getContent());
+    }
+
+    private AnimeCatalogChangedEvent updated(Long animeId) {
+        return new AnimeCatalogChangedEvent(this, AnimeCatalogChangedEvent.Type.UPDATED, List.of(animeId));
+    }
+
+    private Page<Long> query(Map<String, String> parameters) {
+        return query(snapshot, parameters);
+    }
+
+    private static Page<Long> query(AnimeColumnStore.Snapshot snapshot, Map<String, String> parameters) {
+        return snapshot.query(AnimeQuery.fromParameters(new HashMap<>(parameters)));
+    }
+
+    private static AnimeColumnsView columns(Long id, Integer episodeCount, LocalDate startDate, String subtype, String status,
+                                            String ageRatingGuide) {
+        return new AnimeColumnsView() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public Integer getEpisodeCount() {
+                return episodeCount;
+            }
+
+            @Override
+            public LocalDate getStartDate() {
+                return startDate;
+            }
+
+            @Override
+            public String getSubtype() {
+                return subtype;
+            }
+
+            @Override
+            public String getStatus() {
+                return status;
+            }
+
+            @Override
+            public String getAgeRatingGuide() {
+                return ageRatingGuide;
+            }
+        };
+    }
+}
@@ -0,0 +1,132 @@
+package fr.kitsuapirest.test.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.kitsuapirest.ApiResponse.AnimeData;
+import fr.kitsuapirest.ApiResponse.ApiResponse;
+import fr.kitsuapirest.model.FeedSnapshot;
+import fr.kitsuapirest.repository.FeedSnapshotRepository;
+import fr.kitsuapirest.service.AnimeFeed;
+import fr.kitsuapirest.service.AnimeFeedCache;
+import fr.kitsuapirest.service.KitsuClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AnimeFeedCacheTest {
+
+    private final KitsuClient kitsuClient = mock(KitsuClient.class);
+    private final FeedSnapshotRepository snapshotRepository = mock(FeedSnapshotRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService requests = Executors.newFixedThreadPool(8);
+
+    private AnimeFeedCache feedCache;
+
+    @AfterEach
+    void tearDown() {
+        requests.shutdownNow();
+        if (feedCache != null) {
+            feedCache.close();
+        }
+    }
+
+    @Test
+    void testConcurrentRequestsShareOneFetch() throws Exception {
+        feedCache = feedCache(Duration.ofHours(1));
+        CountDownLatch fetchStarted = new CountDownLatch(1);
+        CountDownLatch releaseFetch = new CountDownLatch(1);
+        ApiResponse response = response("trending");
+        when(kitsuClient.get(any(), anyString(), eq(ApiResponse.class))).thenAnswer(invocation -> {
+            fetchStarted.countDown();
+            releaseFetch.await(5, TimeUnit.SECONDS);
+            return response;
+        });
+
+        List<Future<List<AnimeData>>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(requests.submit(() -> feedCache.get(AnimeFeed.TRENDING)));
+        }
+        assertTrue(fetchStarted.await(5, TimeUnit.SECONDS));
+        releaseFetch.countDown();
+
+        for (Future<List<AnimeData>> result : results) {
+            assertEquals("trending", result.get(5, TimeUnit.SECONDS).get(0).getId());
+        }
+        verify(kitsuClient, times(1)).get(eq(KitsuClient.Operation.FEED), eq(AnimeFeed.TRENDING.getUrl(LocalDate.now())), eq(ApiResponse.class));
+        verify(snapshotRepository, timeout(5000)).save(any(FeedSnapshot.class));
+        assertEquals(1, meterRegistry.get("kodo.feeds.refresh").tag("feed", "trending").timer().count());
+        assertTrue(meterRegistry.get("kodo.feeds.age").tag("feed", "trending").gauge().value() >= 0);
+    }
+
+    @Test
+    void testFailedRefreshKeepsTheLastGoodFeed() {
+        feedCache = feedCache(Duration.ZERO);
+        when(kitsuClient.get(any(), anyString(), eq(ApiResponse.class)))
+                .thenReturn(response("upcoming"))
+                .thenThrow(new ResourceAccessException("Kitsu is down"));
+
+        assertEquals("upcoming", feedCache.get(AnimeFeed.UPCOMING).get(0).getId());
+        assertEquals("upcoming", feedCache.get(AnimeFeed.UPCOMING).get(0).getId());
+        assertEquals("upcoming", feedCache.get(AnimeFeed.UPCOMING).get(0).getId());
+    }
+
+    @Test
+    void testSnapshotIsServedAsStaleWhileKitsuIsDown() {
+        feedCache = feedCache(Duration.ofHours(1));
+        String payload = "[{\"id\":\"snapshot\",\"type\":\"anime\"}]";
+        when(snapshotRepository.findFirstByFeedOrderByFetchedAtDesc(AnimeFeed.TRENDING)).thenReturn(Optional.of(
+                new FeedSnapshot(AnimeFeed.TRENDING, "2023-spring", payload, Instant.now().minus(Duration.ofDays(2)))));
+        when(kitsuClient.get(any(), anyString(), eq(ApiResponse.class))).thenThrow(new ResourceAccessException("Kitsu is down"));
+
+        feedCache.hydrate();
+
+        assertEquals("snapshot", feedCache.get(AnimeFeed.TRENDING).get(0).getId());
+        assertTrue(feedCache.isStale(AnimeFeed.TRENDING));
+        assertFalse(feedCache.isStale(AnimeFeed.UPCOMING));
+    }
+
+    @Test
+    void testFeedsFollowTheSeasons() {
+        assertEquals("2023-spring", AnimeFeed.TRENDING.getSeason(LocalDate.of(2023, 5, 14)));
+        assertEquals("2023-summer", AnimeFeed.UPCOMING.getSeason(LocalDate.of(2023, 5, 14)));
+        assertEquals("2027-winter", AnimeFeed.TRENDING.getSeason(LocalDate.of(2026, 12, 1)));
+        assertEquals("2027-spring", AnimeFeed.UPCOMING.getSeason(LocalDate.of(2026, 12, 1)));
+        assertTrue(AnimeFeed.UPCOMING.getUrl(LocalDate.of(2026, 10, 18)).contains("filter[seasonYear]=2027&filter[season]=winter"));
+    }
+
+    private AnimeFeedCache feedCache(Duration ttl) {
+        return new AnimeFeedCache(kitsuClient, snapshotRepository, new ObjectMapper(), meterRegistry, ttl, Duration.ofDays(7));
+    }
+
+    private static ApiResponse response(String id) {
+        AnimeData anime = new AnimeData();
+        anime.setId(id);
+        ApiResponse response = new ApiResponse();
+        response.setData(List.of(anime));
+        return response;
+    }
+}
@@ -0,0 +1,156 @@
+package fr.kitsuapirest.test.service;
+
+import fr.kitsuapirest.event.AnimeCatalogChangedEvent;
+import fr.kitsuapirest.repository.AnimeRepository;
+import fr.kitsuapirest.service.AnimeImageSize;
+import fr.kitsuapirest.service.AnimeImageStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentMatchers;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestTemplate;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AnimeImageStoreTest {
+
+    private static final String POSTER_URL = "https://media.kitsu.io/anime/poster_images/1/original.png";
+    private static final String[] ALLOWED_HOSTS = {"media.kitsu.io"};
+
+    private final AnimeRepository animeRepository = mock(AnimeRepository.class);
+    private final RestTemplate restTemplate = mock(RestTemplate.class);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testPosterIsDownloadedOnceWithItsVariants() throws Exception {
+        AnimeImageStore store = store();
+        when(animeRepository.findImageById(1L)).thenReturn(Optional.of(POSTER_URL));
+        serve(poster(1000, 1420), MediaType.IMAGE_PNG);
+
+        Path small = store.get(1L, AnimeImageSize.SMALL);
+        Path tiny = store.get(1L, AnimeImageSize.TINY);
+        Path original = store.get(1L, AnimeImageSize.ORIGINAL);
+
+        assertEquals(284, ImageIO.read(small.toFile()).getWidth());
+        assertEquals(110, ImageIO.read(tiny.toFile()).getWidth());
+        assertEquals(550, ImageIO.read(store.get(1L, AnimeImageSize.LARGE).toFile()).getWidth());
+        assertEquals("original.png", original.getFileName().toString());
+        assertEquals(1000, ImageIO.read(original.toFile()).getWidth());
+        verifyDownloads(1);
+    }
+
+    @Test
+    void testUnsupportedPosterFallsBackToTheOriginal() {
+        AnimeImageStore store = store();
+        when(animeRepository.findImageById(2L)).thenReturn(Optional.of(POSTER_URL));
+        serve(new byte[]{'R', 'I', 'F', 'F'}, MediaType.parseMediaType("image/webp"));
+
+        assertEquals("original.webp", store.get(2L, AnimeImageSize.SMALL).getFileName().toString());
+    }
+
+    @Test
+    void testUpdatedAnimePostersAreDownloadedAgain() throws Exception {
+        AnimeImageStore store = store();
+        when(animeRepository.findImageById(3L)).thenReturn(Optional.of(POSTER_URL));
+        serve(poster(300, 400), MediaType.IMAGE_PNG);
+        Path small = store.get(3L, AnimeImageSize.SMALL);
+
+        store.onCatalogChanged(new AnimeCatalogChangedEvent(this, AnimeCatalogChangedEvent.Type.UPDATED, List.of(3L)));
+
+        assertFalse(Files.exists(small));
+        store.get(3L, AnimeImageSize.SMALL);
+        verifyDownloads(2);
+    }
+
+    @Test
+    void testAnimeWithoutPoster() {
+        AnimeImageStore store = store();
+        when(animeRepository.findImageById(4L)).thenReturn(Optional.empty());
+
+        assertNull(store.get(4L, AnimeImageSize.SMALL));
+        verifyDownloads(0);
+    }
+
+    @Test
+    void testNonRasterPostersAreRefused() {
+        AnimeImageStore store = store();
+        when(animeRepository.findImageById(5L)).thenReturn(Optional.of(POSTER_URL));
+        serve("<svg xmlns=\"http://www.w3.org/2000/svg\"><script>alert(1)</script></svg>".getBytes(StandardCharsets.UTF_8),
+                MediaType.parseMediaType("image/svg+xml"));
+
+        assertNull(store.get(5L, AnimeImageSize.ORIGINAL));
+        assertFalse(Files.exists(directory.resolve("5").resolve("original.svg")));
+    }
+
+    @Test
+    void testPostersFromOtherHostsAreRefused() {
+        AnimeImageStore store = store();
+        when(animeRepository.findImageById(6L)).thenReturn(Optional.of("http://169.254.169.254/latest/meta-data/poster.png"));
+
+        assertNull(store.get(6L, AnimeImageSize.SMALL));
+        verifyDownloads(0);
+    }
+
+    @Test
+    void testOversizedPostersAreRefused() throws Exception {
+        when(animeRepository.findImageById(7L)).thenReturn(Optional.of(POSTER_URL));
+        serve(poster(300, 400), MediaType.IMAGE_PNG);
+
+        assertNull(new AnimeImageStore(animeRepository, restTemplate, new SimpleMeterRegistry(), directory.toString(),
+                ALLOWED_HOSTS, 100, 16_777_216).get(7L, AnimeImageSize.SMALL));
+        assertNull(new AnimeImageStore(animeRepository, restTemplate, new SimpleMeterRegistry(), directory.toString(),
+                ALLOWED_HOSTS, 5_242_880, 300 * 400 - 1).get(7L, AnimeImageSize.SMALL));
+        assertFalse(Files.exists(directory.resolve("7").resolve("original.png")));
+    }
+
+    private AnimeImageStore store() {
+        return new AnimeImageStore(animeRepository, restTemplate, new SimpleMeterRegistry(), directory.toString(),
+                ALLOWED_HOSTS, 5_242_880, 16_777_216);
+    }
+
+    private void serve(byte[] body, MediaType contentType) {
+        when(restTemplate.execute(eq(URI.create(POSTER_URL)), eq(HttpMethod.GET), any(RequestCallback.class),
+                ArgumentMatchers.<ResponseExtractor<Object>>any())).thenAnswer(invocation -> {
+            MockClientHttpResponse response = new MockClientHttpResponse(body, HttpStatus.OK);
+            response.getHeaders().setContentType(contentType);
+            return invocation.<ResponseExtractor<?>>getArgument(3).extractData(response);
+        });
+    }
+
+    private void verifyDownloads(int count) {
+        verify(restTemplate, times(count)).execute(any(URI.class), eq(HttpMethod.GET), any(RequestCallback.class),
+                ArgumentMatchers.<ResponseExtractor<Object>>any());
+    }
+
+    private static byte[] poster(int width, int height) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB), "png", output);
+        return output.toByteArray();
+    }
+}
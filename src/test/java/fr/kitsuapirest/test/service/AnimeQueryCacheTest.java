@@ -0,0 +1,114 @@
+package fr.kitsuapirest.test.service;
+
+import fr.kitsuapirest.dto.AnimeCard;
+import fr.kitsuapirest.dto.AnimeQuery;
+import fr.kitsuapirest.event.AnimeCatalogChangedEvent;
+import fr.kitsuapirest.service.AnimeQueryCache;
+import fr.kitsuapirest.service.CatalogVersion;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AnimeQueryCacheTest {
+
+    private final CatalogVersion catalogVersion = new CatalogVersion();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger loads = new AtomicInteger();
+    private final Function<AnimeQuery, Page<AnimeCard>> loader = query -> {
+        loads.incrementAndGet();
+        return Page.empty();
+    };
+
+    private AnimeQueryCache queryCache;
+
+    @BeforeEach
+    void setUp() {
+        queryCache = new AnimeQueryCache(catalogVersion, meterRegistry, 100);
+    }
+
+    @Test
+    void testEqualQueriesShareAnEntry() {
+        queryCache.get(AnimeQuery.fromParameters(Map.of("subtype", " TV ", "size", "500")), loader);
+        queryCache.get(AnimeQuery.fromParameters(Map.of("subtype", "TV", "size", "100")), loader);
+        queryCache.get(AnimeQuery.fromParameters(Map.of("subtype", "TV", "page", "1")), loader);
+
+        assertEquals(2, loads.get());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "animeQueries").tag("result", "hit")
+                .functionCounter().count());
+    }
+
+    @Test
+    void testCatalogChangesInvalidateEntries() {
+        AnimeQuery query = AnimeQuery.fromParameters(Map.of());
+        queryCache.get(query, loader);
+
+        AnimeCatalogChangedEvent event = AnimeCatalogChangedEvent.deleted(this, 1L);
+        catalogVersion.onCatalogChanged(event);
+        queryCache.onCatalogChanged(event);
+        queryCache.get(query, loader);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testConcurrentMissesShareASingleLoad() throws Exception {
+        AnimeQuery query = AnimeQuery.fromParameters(Map.of());
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Page<AnimeCard> page = Page.empty();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Page<AnimeCard>> first = executor.submit(() -> queryCache.get(query, ignored -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                await(release);
+                return page;
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            Future<Page<AnimeCard>> second = executor.submit(() -> queryCache.get(query, loader));
+            release.countDown();
+
+            assertSame(page, first.get(5, TimeUnit.SECONDS));
+            assertSame(page, second.get(5, TimeUnit.SECONDS));
+            assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testFailedLoadsAreNotCached() {
+        AnimeQuery query = AnimeQuery.fromParameters(Map.of());
+        IllegalStateException failure = new IllegalStateException("database unavailable");
+
+        assertSame(failure, assertThrows(IllegalStateException.class, () -> queryCache.get(query, ignored -> {
+            throw failure;
+        })));
+        queryCache.get(query, loader);
+
+        assertEquals(1, loads.get());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package fr.kitsuapirest.test.service;
+
+import fr.kitsuapirest.dto.AnimeQuery;
+import fr.kitsuapirest.event.AnimeCatalogChangedEvent;
+import fr.kitsuapirest.model.Anime;
+import fr.kitsuapirest.repository.AnimeRepository;
+import fr.kitsuapirest.service.AnimeSearchIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AnimeSearchIndexTest {
+
+    private final AnimeRepository animeRepository = mock(AnimeRepository.class);
+
+    @TempDir
+    Path directory;
+
+    private AnimeSearchIndex searchIndex;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        searchIndex.close();
+    }
+
+    @Test
+    void testPagesBeyondTheHitsAreEmpty() throws Exception {
+        when(animeRepository.findByIdGreaterThan(eq(0L), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(anime(1L, "Cowboy Bebop"), anime(2L, "Cowboy Bebop: The Movie"))));
+        searchIndex = new AnimeSearchIndex(animeRepository, directory.toString());
+        searchIndex.rebuild();
+
+        AnimeSearchIndex.SearchHits firstPage = searchIndex.search(query(0, 1));
+        AnimeSearchIndex.SearchHits hugePage = searchIndex.search(query(Integer.MAX_VALUE / 10, 100));
+
+        assertEquals(2, firstPage.getTotalHits());
+        assertEquals(1, firstPage.getAnimeIds().size());
+        assertEquals(2, hugePage.getTotalHits());
+        assertTrue(hugePage.getAnimeIds().isEmpty());
+    }
+
+    @Test
+    void testChangesDuringTheRebuildAreAppliedAfterIt() throws Exception {
+        searchIndex = new AnimeSearchIndex(animeRepository, directory.toString());
+        when(animeRepository.findByIdGreaterThan(eq(0L), any(Pageable.class))).thenAnswer(invocation -> {
+            searchIndex.onCatalogChanged(AnimeCatalogChangedEvent.deleted(this, 2L));
+            return new SliceImpl<>(List.of(anime(1L, "Cowboy Bebop"), anime(2L, "Cowboy Bebop: The Movie")),
+                    invocation.getArgument(1), true);
+        });
+        when(animeRepository.findByIdGreaterThan(eq(2L), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of(anime(3L, "Bebop and Rocksteady"))));
+
+        searchIndex.rebuild();
+
+        AnimeSearchIndex.SearchHits hits = searchIndex.search(query(0, 10));
+        assertEquals(2, hits.getTotalHits());
+        assertEquals(Set.of(1L, 3L), Set.copyOf(hits.getAnimeIds()));
+    }
+
+    private static AnimeQuery query(int page, int size) {
+        return new AnimeQuery("bebop", null, null, null, null, null, page, size);
+    }
+
+    private static Anime anime(Long id, String title) {
+        Anime anime = new Anime();
+        anime.setId(id);
+        anime.setTitle(title);
+        return anime;
+    }
+}
@@ -1,24 +1,53 @@
 package fr.kitsuapirest.test.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import fr.kitsuapirest.ApiResponse.AnimeData;
 import fr.kitsuapirest.ApiResponse.ApiResponse;
+import fr.kitsuapirest.dto.AnimeCard;
+import fr.kitsuapirest.dto.AnimeQuery;
+import fr.kitsuapirest.dto.AnimeTitleView;
+import fr.kitsuapirest.dto.KeysetCursor;
+import fr.kitsuapirest.event.AnimeCatalogChangedEvent;
 import fr.kitsuapirest.model.Anime;
 import fr.kitsuapirest.repository.AnimeRepository;
+import fr.kitsuapirest.service.AnimeColumnStore;
+import fr.kitsuapirest.service.AnimeFeedCache;
+import fr.kitsuapirest.service.AnimeQueryCache;
+import fr.kitsuapirest.service.AnimeSearchIndex;
 import fr.kitsuapirest.service.AnimeService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
-import org.springframework.web.client.RestTemplate;
+import org.mockito.Spy;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
@@ -28,7 +57,22 @@ class AnimeServiceTest {
     private AnimeRepository animeRepository;
 
     @Mock
-    private RestTemplate restTemplate;
+    private AnimeFeedCache feedCache;
+
+    @Mock
+    private AnimeSearchIndex searchIndex;
+
+    @Mock
+    private AnimeColumnStore columnStore;
+
+    @Mock
+    private AnimeQueryCache queryCache;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
 
     @InjectMocks
     private AnimeService animeService;
@@ -57,16 +101,91 @@ class AnimeServiceTest {
 
         List<Anime> allAnimes = Arrays.asList(anime1, anime2);
 
-        when(animeRepository.findAll()).thenReturn(allAnimes);
+        when(animeRepository.findAll(ArgumentMatchers.<Specification<Anime>>any(), any(Pageable.class)))
+                .thenAnswer(invocation -> new PageImpl<>(allAnimes, invocation.getArgument(1), allAnimes.size()));
 
         Map<String, String> parameters = Collections.emptyMap();
 
-        List<Anime> result = animeService.getAllAnimes(parameters);
+        Page<Anime> result = animeService.getAllAnimes(parameters);
+
+        assertEquals(2, result.getTotalElements());
+        assertEquals("Anime 1", result.getContent().get(0).getTitle());
+        assertEquals("Anime 2", result.getContent().get(1).getTitle());
+        verify(animeRepository, times(1)).findAll(ArgumentMatchers.<Specification<Anime>>any(), any(Pageable.class));
+    }
+
+    @Test
+    void testGetAllAnimesPagingAndSorting() {
+        when(animeRepository.findAll(ArgumentMatchers.<Specification<Anime>>any(), any(Pageable.class)))
+                .thenReturn(Page.empty());
+
+        animeService.getAllAnimes(Map.of("sortBy", "newest", "page", "2", "size", "500"));
+
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+        verify(animeRepository).findAll(ArgumentMatchers.<Specification<Anime>>any(), pageable.capture());
+        assertEquals(2, pageable.getValue().getPageNumber());
+        assertEquals(AnimeQuery.MAX_PAGE_SIZE, pageable.getValue().getPageSize());
+        assertEquals(Sort.by(Sort.Direction.DESC, "startDate", "id"), pageable.getValue().getSort());
+    }
+
+    @Test
+    void testGetAnimeCardsSelectsCardsOnly() {
+        AnimeCard card = new AnimeCard(1L, "Anime 1", null, "TV", "finished", null, 12, "An excerpt");
+        when(animeRepository.findCards(ArgumentMatchers.<Specification<Anime>>any(), any(Pageable.class)))
+                .thenAnswer(invocation -> new PageImpl<>(List.of(card), invocation.getArgument(1), 1));
+        when(queryCache.get(any(AnimeQuery.class), any()))
+                .thenAnswer(invocation -> invocation.<Function<AnimeQuery, Page<AnimeCard>>>getArgument(1)
+                        .apply(invocation.getArgument(0)));
+
+        Page<AnimeCard> result = animeService.getAnimeCards(Map.of("subtype", "TV"));
+
+        assertEquals("An excerpt", result.getContent().get(0).getSynopsisExcerpt());
+        verify(queryCache).get(eq(AnimeQuery.fromParameters(Map.of("subtype", "TV"))), any());
+        verify(animeRepository, never()).findAll(ArgumentMatchers.<Specification<Anime>>any(), any(Pageable.class));
+    }
+
+    @Test
+    void testSynopsisExcerptCutsAfterLastWord() {
+        String synopsis = "word ".repeat(100);
+        String excerpt = Anime.excerpt(synopsis);
+
+        assertEquals(Anime.SYNOPSIS_EXCERPT_LENGTH, excerpt.length());
+        assertTrue(excerpt.endsWith("word\u2026"));
+        assertEquals("Short synopsis", Anime.excerpt("Short synopsis"));
+    }
+
+    @Test
+    void testGetAllAnimesUsesColumnStore() {
+        Anime anime1 = new Anime();
+        anime1.setId(1L);
+        anime1.setTitle("Anime 1");
+
+        Anime anime2 = new Anime();
+        anime2.setId(2L);
+        anime2.setTitle("Anime 2");
+
+        when(columnStore.isReady()).thenReturn(true);
+        when(columnStore.query(any(AnimeQuery.class)))
+                .thenAnswer(invocation -> new PageImpl<>(Arrays.asList(2L, 1L),
+                        invocation.getArgument(0, AnimeQuery.class).toPageable(), 5));
+        when(animeRepository.findAllById(Arrays.asList(2L, 1L))).thenReturn(Arrays.asList(anime1, anime2));
 
-        assertEquals(2, result.size());
-        assertEquals("Anime 1", result.get(0).getTitle());
-        assertEquals("Anime 2", result.get(1).getTitle());
-        verify(animeRepository, times(1)).findAll();
+        Page<Anime> result = animeService.getAllAnimes(Map.of("subtype", "TV", "sortBy", "highest", "size", "2"));
+
+        assertEquals(5, result.getTotalElements());
+        assertEquals("Anime 2", result.getContent().get(0).getTitle());
+        verify(animeRepository, never()).findAll(ArgumentMatchers.<Specification<Anime>>any(), any(Pageable.class));
+    }
+
+    @Test
+    void testScrollAnimesRejectsCursorOfAnotherSort() {
+        String cursor = new KeysetCursor("oldest", "2023-06-12", 1L).encode();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> animeService.scrollAnimes(Map.of("sortBy", "highest", "cursor", cursor)));
+        assertThrows(IllegalArgumentException.class,
+                () -> animeService.scrollAnimes(Map.of("cursor", "not-a-cursor")));
+        verifyNoInteractions(animeRepository);
     }
 
     @Test
@@ -90,6 +209,30 @@ class AnimeServiceTest {
         animeService.deleteAnime(animeId);
 
         verify(animeRepository, times(1)).deleteById(animeId);
+        verify(eventPublisher, times(1)).publishEvent(any(AnimeCatalogChangedEvent.class));
+    }
+
+    @Test
+    void testGetAllAnimesByTitleUsesSearchIndex() {
+        Anime anime1 = new Anime();
+        anime1.setId(1L);
+        anime1.setTitle("Anime 1");
+
+        Anime anime2 = new Anime();
+        anime2.setId(2L);
+        anime2.setTitle("Anime 2");
+
+        when(searchIndex.isReady()).thenReturn(true);
+        when(searchIndex.search(any(AnimeQuery.class)))
+                .thenReturn(new AnimeSearchIndex.SearchHits(Arrays.asList(2L, 1L), 2));
+        when(animeRepository.findAllById(Arrays.asList(2L, 1L))).thenReturn(Arrays.asList(anime1, anime2));
+
+        Page<Anime> result = animeService.getAllAnimes(Map.of("title", "anime"));
+
+        assertEquals(2, result.getTotalElements());
+        assertEquals("Anime 2", result.getContent().get(0).getTitle());
+        assertEquals("Anime 1", result.getContent().get(1).getTitle());
+        verify(animeRepository, never()).findAll(ArgumentMatchers.<Specification<Anime>>any(), any(Pageable.class));
     }
 
     @Test
@@ -98,11 +241,68 @@ class AnimeServiceTest {
         Anime anime = new Anime();
         anime.setTitle(title);
 
-        when(animeRepository.findByTitle(title)).thenReturn(anime);
+        when(animeRepository.findFirstByTitleOrderByIdAsc(title)).thenReturn(anime);
 
         Anime result = animeService.getAnimeByTitle(title);
 
         assertEquals(title, result.getTitle());
-        verify(animeRepository, times(1)).findByTitle(title);
+        verify(animeRepository, times(1)).findFirstByTitleOrderByIdAsc(title);
+    }
+
+    @Test
+    void testGetAnimeIdsByTitles() {
+        AnimeTitleView first = titleView(3L, "Anime 1");
+        AnimeTitleView duplicate = titleView(7L, "Anime 1");
+        AnimeTitleView second = titleView(5L, "Anime 2");
+        when(animeRepository.findByTitleIn(Set.of("Anime 1", "Anime 2", "Missing"))).thenReturn(List.of(duplicate, first, second));
+
+        Map<String, Long> result = animeService.getAnimeIdsByTitles(Arrays.asList("Anime 1", "Anime 2", "Missing", null, "Anime 1"));
+
+        assertEquals(Map.of("Anime 1", 3L, "Anime 2", 5L), result);
+        verify(animeRepository, times(1)).findByTitleIn(Set.of("Anime 1", "Anime 2", "Missing"));
+    }
+
+    @Test
+    void testExportAnimesWritesTheStreamAsAJsonArray() throws IOException {
+        Anime first = new Anime();
+        first.setId(2L);
+        first.setTitle("Anime 2");
+        first.setStartDate(LocalDate.of(2023, 2, 1));
+        Anime second = new Anime();
+        second.setId(1L);
+        second.setTitle("Anime 1");
+        AtomicBoolean closed = new AtomicBoolean();
+        when(animeRepository.streamAnimes(ArgumentMatchers.<Specification<Anime>>any(), any(Sort.class)))
+                .thenReturn(Stream.of(first, second).onClose(() -> closed.set(true)));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        animeService.exportAnimes(new HashMap<>(), output);
+
+        JsonNode animes = objectMapper.readTree(output.toByteArray());
+        assertTrue(animes.isArray());
+        assertEquals(2, animes.size());
+        assertEquals("Anime 2", animes.get(0).get("title").asText());
+        assertEquals("Anime 1", animes.get(1).get("title").asText());
+        assertTrue(closed.get());
+    }
+
+    @Test
+    void testExportAnimesWritesAnEmptyArray() throws IOException {
+        AtomicBoolean closed = new AtomicBoolean();
+        when(animeRepository.streamAnimes(ArgumentMatchers.<Specification<Anime>>any(), any(Sort.class)))
+                .thenReturn(Stream.<Anime>empty().onClose(() -> closed.set(true)));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        animeService.exportAnimes(new HashMap<>(), output);
+
+        assertEquals("[]", output.toString(StandardCharsets.UTF_8));
+        assertTrue(closed.get());
+    }
+
+    private static AnimeTitleView titleView(Long id, String title) {
+        AnimeTitleView view = mock(AnimeTitleView.class);
+        when(view.getId()).thenReturn(id);
+        when(view.getTitle()).thenReturn(title);
+        return view;
     }
 }
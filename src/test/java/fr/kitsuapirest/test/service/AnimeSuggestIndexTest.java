@@ -0,0 +1,87 @@
+package fr.kitsuapirest.test.service;
+
+import fr.kitsuapirest.dto.AnimeSuggestion;
+import fr.kitsuapirest.dto.AnimeTitleView;
+import fr.kitsuapirest.service.AnimeSuggestIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AnimeSuggestIndexTest {
+
+    private AnimeSuggestIndex.Snapshot snapshot;
+
+    @BeforeEach
+    void setUp() {
+        List<AnimeTitleView> animes = Arrays.asList(
+                title(1L, "Attack on Titan", "Shingeki no Kyojin"),
+                title(2L, "Attack on Titan: Final Season", "Shingeki no Kyojin: The Final Season"),
+                title(3L, "Astra Lost in Space", "Kanata no Astra"),
+                title(4L, "Pokémon", "Pocket Monsters")
+        );
+        Map<Long, Integer> popularity = Map.of(1L, 10, 2L, 30, 3L, 5);
+
+        snapshot = AnimeSuggestIndex.Snapshot.build(animes, popularity);
+    }
+
+    @Test
+    void testSuggestRanksByPopularity() {
+        assertEquals(Arrays.asList(2L, 1L, 3L), ids(snapshot.suggest("a", 10)));
+        assertEquals(Arrays.asList(2L, 1L), ids(snapshot.suggest("Attack", 10)));
+    }
+
+    @Test
+    void testSuggestMatchesWordStartsOnce() {
+        assertEquals(Arrays.asList(2L, 1L), ids(snapshot.suggest("tit", 10)));
+        assertEquals(Arrays.asList(2L, 1L), ids(snapshot.suggest("kyojin", 10)));
+        assertEquals(List.of(2L), ids(snapshot.suggest("final", 10)));
+    }
+
+    @Test
+    void testSuggestIgnoresCaseAccentsAndPunctuation() {
+        assertEquals(List.of(4L), ids(snapshot.suggest("POKEMON", 10)));
+        assertEquals(List.of(2L), ids(snapshot.suggest("titan final", 10)));
+    }
+
+    @Test
+    void testSuggestHonorsLimitAndEmptyInput() {
+        assertEquals(List.of(2L), ids(snapshot.suggest("a", 1)));
+        assertTrue(snapshot.suggest("  ", 10).isEmpty());
+        assertTrue(snapshot.suggest("zzz", 10).isEmpty());
+    }
+
+    private static List<Long> ids(List<AnimeSuggestion> suggestions) {
+        return suggestions.stream().map(AnimeSuggestion::getId).collect(Collectors.toList());
+    }
+
+    private static AnimeTitleView title(Long id, String title, String titleEnJp) {
+        return new AnimeTitleView() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getTitle() {
+                return title;
+            }
+
+            @Override
+            public String getTitleEnJp() {
+                return titleEnJp;
+            }
+
+            @Override
+            public String getTitleJaJp() {
+                return null;
+            }
+        };
+    }
+}
@@ -0,0 +1,37 @@
+package fr.kitsuapirest.test.service;
+
+import fr.kitsuapirest.event.AnimeCatalogChangedEvent;
+import fr.kitsuapirest.service.AnimeFeed;
+import fr.kitsuapirest.service.CatalogVersion;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class CatalogVersionTest {
+
+    private final CatalogVersion catalogVersion = new CatalogVersion();
+
+    @Test
+    void testChangesBumpCatalogAndAnimeETags() {
+        String catalogETag = catalogVersion.catalogETag();
+        String animeETag = catalogVersion.animeETag(1L);
+        String otherAnimeETag = catalogVersion.animeETag(2L);
+
+        catalogVersion.onCatalogChanged(AnimeCatalogChangedEvent.deleted(this, 1L));
+
+        assertNotEquals(catalogETag, catalogVersion.catalogETag());
+        assertNotEquals(animeETag, catalogVersion.animeETag(1L));
+        assertEquals(otherAnimeETag, catalogVersion.animeETag(2L));
+    }
+
+    @Test
+    void testFeedETagsFollowTheFeedVersionAndStaleness() {
+        String etag = catalogVersion.feedETag(AnimeFeed.TRENDING, 3, false);
+
+        assertEquals(etag, catalogVersion.feedETag(AnimeFeed.TRENDING, 3, false));
+        assertNotEquals(etag, catalogVersion.feedETag(AnimeFeed.TRENDING, 4, false));
+        assertNotEquals(etag, catalogVersion.feedETag(AnimeFeed.TRENDING, 3, true));
+        assertNotEquals(etag, catalogVersion.feedETag(AnimeFeed.UPCOMING, 3, false));
+    }
+}
@@ -0,0 +1,75 @@
+package fr.kitsuapirest.test.service;
+
+import fr.kitsuapirest.ApiResponse.AnimeAttributes;
+import fr.kitsuapirest.ApiResponse.AnimeData;
+import fr.kitsuapirest.ApiResponse.ImageObject;
+import fr.kitsuapirest.ApiResponse.Titles;
+import fr.kitsuapirest.dto.HomePage;
+import fr.kitsuapirest.service.HomeCarouselCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HomeCarouselCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final HomeCarouselCache cache = new HomeCarouselCache(templateEngine(), meterRegistry);
+
+    @Test
+    void testCarouselsAreCachedUntilTheVersionChanges() {
+        HomePage homePage = new HomePage(List.of(animeData("42", "Cowboy Bebop")), List.of(), null, false, false);
+
+        assertNull(cache.get("1-1-0"));
+        String html = cache.render("1-1-0", homePage, new MockHttpServletRequest(), new MockHttpServletResponse());
+
+        assertTrue(html.contains("href=\"/animes/42\""));
+        assertTrue(html.contains("Cowboy Bebop"));
+        assertFalse(html.contains("temporarily unavailable"));
+        assertEquals(html, cache.get("1-1-0"));
+        assertNull(cache.get("2-1-0"));
+        assertEquals(1, meterRegistry.get("kodo.home.carousels").tag("result", "hit").counter().count());
+    }
+
+    @Test
+    void testDegradedCarouselsAreNotCached() {
+        HomePage homePage = new HomePage(List.of(), List.of(animeData("7", "Trigun")), null, true, false);
+
+        String html = cache.render("1-1-0", homePage, new MockHttpServletRequest(), new MockHttpServletResponse());
+
+        assertTrue(html.contains("The trending animes are temporarily unavailable."));
+        assertNull(cache.get("1-1-0"));
+    }
+
+    private static SpringTemplateEngine templateEngine() {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        SpringTemplateEngine templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(resolver);
+        return templateEngine;
+    }
+
+    private static AnimeData animeData(String id, String title) {
+        Titles titles = new Titles();
+        titles.setEn(title);
+        ImageObject posterImage = new ImageObject();
+        posterImage.setSmall("https://media.kitsu.io/anime/poster_images/" + id + "/small.jpg");
+        AnimeAttributes attributes = new AnimeAttributes();
+        attributes.setTitles(titles);
+        attributes.setPosterImage(posterImage);
+        AnimeData animeData = new AnimeData();
+        animeData.setId(id);
+        animeData.setAttributes(attributes);
+        return animeData;
+    }
+}
@@ -0,0 +1,105 @@
+package fr.kitsuapirest.test.service;
+
+import fr.kitsuapirest.ApiResponse.AnimeAttributes;
+import fr.kitsuapirest.ApiResponse.AnimeData;
+import fr.kitsuapirest.ApiResponse.Titles;
+import fr.kitsuapirest.dto.HomePage;
+import fr.kitsuapirest.model.User;
+import fr.kitsuapirest.service.AnimeService;
+import fr.kitsuapirest.service.CatalogVersion;
+import fr.kitsuapirest.service.HomePageService;
+import fr.kitsuapirest.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class HomePageServiceTest {
+
+    private final AnimeService animeService = mock(AnimeService.class);
+    private final UserService userService = mock(UserService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final HomePageService homePageService = new HomePageService(animeService, userService,
+            new CatalogVersion(), meterRegistry, 4, 16, Duration.ofMillis(300));
+
+    @AfterEach
+    void tearDown() {
+        homePageService.close();
+    }
+
+    @Test
+    void testSectionsAreLoadedAndLinkedToTheCatalog() {
+        AnimeData trending = animeData("kitsu-1", "Cowboy Bebop");
+        User user = new User();
+        when(animeService.getTrendingAnimes()).thenReturn(List.of(trending));
+        when(animeService.getUpcomingAnimes()).thenReturn(List.of(animeData("kitsu-2", "Unknown")));
+        when(animeService.getAnimeIdsByTitles(List.of("Cowboy Bebop"))).thenReturn(Map.of("Cowboy Bebop", 42L));
+        when(userService.getUserByUsername("spike")).thenReturn(user);
+
+        HomePage homePage = homePageService.getHomePage("spike");
+
+        assertEquals("42", homePage.getTrendingAnimes().get(0).getId());
+        assertSame(trending.getAttributes(), homePage.getTrendingAnimes().get(0).getAttributes());
+        assertEquals("kitsu-1", trending.getId());
+        assertEquals("kitsu-2", homePage.getUpcomingAnimes().get(0).getId());
+        assertSame(user, homePage.getUser());
+        assertFalse(homePage.isTrendingUnavailable());
+        assertFalse(homePage.isUpcomingUnavailable());
+        verify(animeService, never()).getAnimeByTitle(anyString());
+    }
+
+    @Test
+    void testSlowSectionDegradesOnItsOwn() {
+        when(animeService.getTrendingAnimes()).thenAnswer(invocation -> {
+            Thread.sleep(2000);
+            return List.of();
+        });
+        when(animeService.getUpcomingAnimes()).thenReturn(List.of(animeData("kitsu-2", "Upcoming")));
+
+        long start = System.nanoTime();
+        HomePage homePage = homePageService.getHomePage(null);
+
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(1).toNanos());
+        assertTrue(homePage.isTrendingUnavailable());
+        assertTrue(homePage.getTrendingAnimes().isEmpty());
+        assertEquals(1, homePage.getUpcomingAnimes().size());
+        assertNull(homePage.getUser());
+        assertEquals(1, meterRegistry.get("kodo.home.degraded").tag("section", "trending").counter().count());
+    }
+
+    @Test
+    void testFailedSectionDegradesOnItsOwn() {
+        when(animeService.getTrendingAnimes()).thenReturn(List.of());
+        when(animeService.getUpcomingAnimes()).thenThrow(new IllegalStateException("Kitsu is down"));
+
+        HomePage homePage = homePageService.getHomePage(null);
+
+        assertFalse(homePage.isTrendingUnavailable());
+        assertTrue(homePage.isUpcomingUnavailable());
+    }
+
+    private static AnimeData animeData(String id, String title) {
+        Titles titles = new Titles();
+        titles.setEn(title);
+        AnimeAttributes attributes = new AnimeAttributes();
+        attributes.setTitles(titles);
+        AnimeData animeData = new AnimeData();
+        animeData.setId(id);
+        animeData.setAttributes(attributes);
+        return animeData;
+    }
+}
@@ -0,0 +1,191 @@
+package fr.kitsuapirest.test.service;
+
+import fr.kitsuapirest.dto.AnimeTitleView;
+import fr.kitsuapirest.dto.ImportStatus;
+import fr.kitsuapirest.event.AnimeCatalogChangedEvent;
+import fr.kitsuapirest.model.Anime;
+import fr.kitsuapirest.model.ImportCheckpoint;
+import fr.kitsuapirest.repository.AnimeRepository;
+import fr.kitsuapirest.repository.ImportCheckpointRepository;
+import fr.kitsuapirest.service.KitsuApiService;
+import fr.kitsuapirest.service.KitsuCatalogImporter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class KitsuCatalogImporterTest {
+
+    private static final int CATALOG_SIZE = 47;
+    private static final int PAGE_SIZE = 5;
+
+    private final KitsuApiService kitsuApiService = mock(KitsuApiService.class);
+    private final AnimeRepository animeRepository = mock(AnimeRepository.class);
+    private final ImportCheckpointRepository checkpointRepository = mock(ImportCheckpointRepository.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+
+    private KitsuCatalogImporter importer;
+
+    @BeforeEach
+    void setUp() {
+        importer = new KitsuCatalogImporter(kitsuApiService, animeRepository, checkpointRepository, jdbcTemplate,
+                eventPublisher, new SimpleMeterRegistry(), 3, PAGE_SIZE, 20);
+        when(kitsuApiService.fetchCatalogPage(anyInt(), anyInt())).thenAnswer(invocation -> {
+            int offset = invocation.getArgument(0);
+            List<Anime> page = new ArrayList<>();
+            for (int id = offset + 1; id <= Math.min(offset + PAGE_SIZE, CATALOG_SIZE); id++) {
+                Anime anime = new Anime();
+                anime.setKitsuId(String.valueOf(id));
+                page.add(anime);
+            }
+            return page;
+        });
+        when(animeRepository.findIdsByKitsuIdIn(anyCollection())).thenAnswer(invocation -> invocation.<Collection<String>>getArgument(0)
+                .stream().map(Long::valueOf).collect(Collectors.toList()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        importer.close();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testImportResumesFromCheckpointAndSkipsKnownAnimes() {
+        ImportCheckpoint checkpoint = new ImportCheckpoint("kitsu-catalog");
+        checkpoint.setNextOffset(10);
+        when(checkpointRepository.findById(anyString())).thenReturn(Optional.of(checkpoint));
+        when(animeRepository.findKitsuIdsByKitsuIdIn(anyCollection())).thenReturn(Set.of("11", "12"));
+
+        importer.start();
+
+        verify(checkpointRepository, timeout(5000).times(2)).save(checkpoint);
+        verify(kitsuApiService, never()).fetchCatalogPage(eq(5), anyInt());
+        ArgumentCaptor<List<Anime>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, timeout(5000).times(2)).batchUpdate(anyString(), inserted.capture(), eq(20),
+                any(ParameterizedPreparedStatementSetter.class));
+        verify(eventPublisher, timeout(5000).times(2)).publishEvent(any(AnimeCatalogChangedEvent.class));
+
+        List<Anime> animes = inserted.getAllValues().stream().flatMap(List::stream).toList();
+        assertEquals(CATALOG_SIZE - 10 - 2, animes.size());
+        assertEquals("13", animes.get(0).getKitsuId());
+        assertEquals(CATALOG_SIZE, checkpoint.getNextOffset());
+        assertEquals(CATALOG_SIZE - 10 - 2, checkpoint.getImportedCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testImportLinksUnlinkedAnimesAndSkipsDuplicates() {
+        ImportCheckpoint checkpoint = new ImportCheckpoint("kitsu-catalog");
+        when(checkpointRepository.findById(anyString())).thenReturn(Optional.of(checkpoint));
+        when(kitsuApiService.fetchCatalogPage(anyInt(), anyInt())).thenAnswer(invocation -> invocation.<Integer>getArgument(0) == 0
+                ? List.of(anime("1", "Cowboy Bebop"), anime("2", "Trigun"), anime("1", "Cowboy Bebop"))
+                : List.of());
+        when(animeRepository.findKitsuIdsByKitsuIdIn(anyCollection())).thenReturn(Set.of());
+        AnimeTitleView unlinked = mock(AnimeTitleView.class);
+        when(unlinked.getId()).thenReturn(100L);
+        when(unlinked.getTitle()).thenReturn("Trigun");
+        when(animeRepository.findByKitsuIdIsNullAndTitleIn(anyCollection())).thenReturn(List.of(unlinked));
+
+        importer.start();
+
+        verify(checkpointRepository, timeout(5000)).save(checkpoint);
+        ArgumentCaptor<List<Anime>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("insert"), inserted.capture(), eq(20),
+                any(ParameterizedPreparedStatementSetter.class));
+        ArgumentCaptor<List<Map.Entry<Long, Anime>>> linked = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("update"), linked.capture(), eq(20),
+                any(ParameterizedPreparedStatementSetter.class));
+
+        assertEquals(List.of("1"), inserted.getValue().stream().map(Anime::getKitsuId).toList());
+        assertEquals(100L, linked.getValue().get(0).getKey());
+        assertEquals("2", linked.getValue().get(0).getValue().getKitsuId());
+        assertEquals(1, linked.getValue().size());
+        assertEquals(1, checkpoint.getImportedCount());
+    }
+
+    @Test
+    void testPageSizeIsCappedToTheKitsuLimit() {
+        importer.close();
+        importer = new KitsuCatalogImporter(kitsuApiService, animeRepository, checkpointRepository, jdbcTemplate,
+                eventPublisher, new SimpleMeterRegistry(), 3, 50, 500);
+        ImportCheckpoint checkpoint = new ImportCheckpoint("kitsu-catalog");
+        when(checkpointRepository.findById(anyString())).thenReturn(Optional.of(checkpoint));
+        when(kitsuApiService.fetchCatalogPage(anyInt(), anyInt())).thenAnswer(invocation -> {
+            int offset = invocation.getArgument(0);
+            int limit = Math.min(invocation.<Integer>getArgument(1), 20);
+            List<Anime> page = new ArrayList<>();
+            for (int id = offset + 1; id <= Math.min(offset + limit, 100); id++) {
+                page.add(anime(String.valueOf(id), null));
+            }
+            return page;
+        });
+        when(animeRepository.findKitsuIdsByKitsuIdIn(anyCollection())).thenReturn(Set.of());
+
+        importer.start();
+
+        ImportStatus status = waitForEnd();
+        verify(kitsuApiService, never()).fetchCatalogPage(anyInt(), eq(50));
+        assertEquals(100, status.getNextOffset());
+        assertEquals(100, checkpoint.getImportedCount());
+    }
+
+    @Test
+    void testFailedImportKeepsLastCheckpoint() {
+        ImportCheckpoint checkpoint = new ImportCheckpoint("kitsu-catalog");
+        when(checkpointRepository.findById(anyString())).thenReturn(Optional.of(checkpoint));
+        when(kitsuApiService.fetchCatalogPage(eq(0), anyInt())).thenThrow(new IllegalStateException("Kitsu is down"));
+
+        importer.start();
+
+        verify(kitsuApiService, timeout(5000)).fetchCatalogPage(eq(10), anyInt());
+        ImportStatus status = waitForEnd();
+        assertEquals("Kitsu is down", status.getError());
+        assertEquals(0, status.getNextOffset());
+        verify(checkpointRepository, never()).save(any());
+    }
+
+    private static Anime anime(String kitsuId, String title) {
+        Anime anime = new Anime();
+        anime.setKitsuId(kitsuId);
+        anime.setTitle(title);
+        return anime;
+    }
+
+    private ImportStatus waitForEnd() {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (importer.getStatus().isRunning() && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait();
+        }
+        ImportStatus status = importer.getStatus();
+        assertFalse(status.isRunning());
+        return status;
+    }
+}
@@ -0,0 +1,216 @@
+package fr.kitsuapirest.test.service;
+
+import fr.kitsuapirest.ApiResponse.ApiResponse;
+import fr.kitsuapirest.exception.KitsuUnavailableException;
+import fr.kitsuapirest.service.KitsuClient;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class KitsuClientTest {
+
+    private static final String BASE_URL = "https://kitsu.io/api/edge";
+    private static final String PATH = "/anime";
+    private static final String URL = BASE_URL + PATH;
+
+    private final RestTemplate restTemplate = mock(RestTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final KitsuClient kitsuClient = new KitsuClient(restTemplate, meterRegistry,
+            new MockEnvironment().withProperty("kodo.kitsu.timeout.feed", "PT0.2S"), BASE_URL,
+            2, 3, Duration.ofMillis(1), Duration.ofMinutes(1));
+
+    @AfterEach
+    void tearDown() throws Exception {
+        kitsuClient.close();
+    }
+
+    @Test
+    void testServerErrorsAreRetried() {
+        ApiResponse response = new ApiResponse();
+        when(restTemplate.getForObject(anyString(), eq(ApiResponse.class)))
+                .thenThrow(new HttpServerErrorException(HttpStatus.BAD_GATEWAY))
+                .thenThrow(new ResourceAccessException("Connection reset"))
+                .thenReturn(response);
+
+        assertSame(response, kitsuClient.get(KitsuClient.Operation.SEARCH, PATH, ApiResponse.class));
+        verify(restTemplate, times(3)).getForObject(URL, ApiResponse.class);
+    }
+
+    @Test
+    void testConcurrentIdenticalRequestsAreCoalesced() throws Exception {
+        CountDownLatch callStarted = new CountDownLatch(1);
+        CountDownLatch releaseCall = new CountDownLatch(1);
+        ApiResponse response = new ApiResponse();
+        when(restTemplate.getForObject(anyString(), eq(ApiResponse.class))).thenAnswer(invocation -> {
+            callStarted.countDown();
+            releaseCall.await(5, TimeUnit.SECONDS);
+            return response;
+        });
+
+        ExecutorService callers = Executors.newFixedThreadPool(6);
+        try {
+            List<Future<ApiResponse>> results = new ArrayList<>();
+            results.add(callers.submit(() -> kitsuClient.get(KitsuClient.Operation.FEED, PATH + "?a=1&b=2", ApiResponse.class)));
+            assertTrue(callStarted.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 5; i++) {
+                results.add(callers.submit(() -> kitsuClient.get(KitsuClient.Operation.FEED, PATH + "?b=2&a=1", ApiResponse.class)));
+            }
+            while (meterRegistry.get("kodo.kitsu.coalesced").counter().count() < 5) {
+                Thread.sleep(10);
+            }
+            releaseCall.countDown();
+
+            for (Future<ApiResponse> result : results) {
+                assertSame(response, result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+        verify(restTemplate, times(1)).getForObject(anyString(), eq(ApiResponse.class));
+    }
+
+    @Test
+    void testRequestsOfOtherOperationsAreNotCoalesced() throws Exception {
+        CountDownLatch callStarted = new CountDownLatch(1);
+        CountDownLatch releaseCall = new CountDownLatch(1);
+        ApiResponse slowResponse = new ApiResponse();
+        ApiResponse fastResponse = new ApiResponse();
+        when(restTemplate.getForObject(anyString(), eq(ApiResponse.class)))
+                .thenAnswer(invocation -> {
+                    callStarted.countDown();
+                    releaseCall.await(5, TimeUnit.SECONDS);
+                    return slowResponse;
+                })
+                .thenReturn(fastResponse);
+
+        ExecutorService callers = Executors.newSingleThreadExecutor();
+        try {
+            Future<ApiResponse> catalog = callers.submit(() -> kitsuClient.get(KitsuClient.Operation.CATALOG, PATH, ApiResponse.class));
+            assertTrue(callStarted.await(5, TimeUnit.SECONDS));
+
+            assertSame(fastResponse, kitsuClient.get(KitsuClient.Operation.FEED, PATH, ApiResponse.class));
+            releaseCall.countDown();
+            assertSame(slowResponse, catalog.get(5, TimeUnit.SECONDS));
+        } finally {
+            releaseCall.countDown();
+            callers.shutdownNow();
+        }
+        assertEquals(0, meterRegistry.get("kodo.kitsu.coalesced").counter().count());
+    }
+
+    @Test
+    void testClientErrorsAreNotRetried() {
+        when(restTemplate.getForObject(anyString(), eq(ApiResponse.class)))
+                .thenThrow(new HttpClientErrorException(HttpStatus.BAD_REQUEST));
+
+        assertThrows(HttpClientErrorException.class, () -> kitsuClient.get(KitsuClient.Operation.SEARCH, PATH, ApiResponse.class));
+        verify(restTemplate, times(1)).getForObject(URL, ApiResponse.class);
+        assertEquals(CircuitBreaker.State.CLOSED, kitsuClient.getCircuitBreakerState());
+    }
+
+    @Test
+    void testSlowCallsTimeOut() {
+        when(restTemplate.getForObject(anyString(), eq(ApiResponse.class))).thenAnswer(invocation -> {
+            Thread.sleep(2000);
+            return new ApiResponse();
+        });
+
+        long start = System.nanoTime();
+        assertThrows(KitsuUnavailableException.class, () -> kitsuClient.get(KitsuClient.Operation.FEED, PATH, ApiResponse.class));
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(1).toNanos());
+        assertEquals(1, meterRegistry.get("kodo.kitsu.rejected").tag("reason", "timeout").counter().count());
+        verify(restTemplate, times(1)).getForObject(URL, ApiResponse.class);
+    }
+
+    @Test
+    void testCircuitBreakerFailsFastOnceOpen() {
+        when(restTemplate.getForObject(anyString(), eq(ApiResponse.class)))
+                .thenThrow(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+
+        for (int i = 0; i < 3; i++) {
+            KitsuUnavailableException exception = assertThrows(KitsuUnavailableException.class,
+                    () -> kitsuClient.get(KitsuClient.Operation.CATALOG, PATH, ApiResponse.class));
+            assertTrue(exception.getCause() instanceof HttpServerErrorException);
+        }
+        assertEquals(3, meterRegistry.get("kodo.kitsu.rejected").tag("reason", "upstream_failure").counter().count());
+        assertThrows(KitsuUnavailableException.class, () -> kitsuClient.get(KitsuClient.Operation.CATALOG, PATH, ApiResponse.class));
+        assertEquals(CircuitBreaker.State.OPEN, kitsuClient.getCircuitBreakerState());
+
+        assertThrows(KitsuUnavailableException.class, () -> kitsuClient.get(KitsuClient.Operation.CATALOG, PATH, ApiResponse.class));
+        verify(restTemplate, times(10)).getForObject(URL, ApiResponse.class);
+    }
+
+    @Test
+    void testCallsRunOnTheCallExecutorWhenSet() throws Exception {
+        ExecutorService callExecutor = Executors.newCachedThreadPool(runnable -> new Thread(runnable, "kitsu-call-test"));
+        try {
+            kitsuClient.setCallExecutor(callExecutor);
+            List<String> threads = new ArrayList<>();
+            ApiResponse response = new ApiResponse();
+            when(restTemplate.getForObject(anyString(), eq(ApiResponse.class))).thenAnswer(invocation -> {
+                threads.add(Thread.currentThread().getName());
+                return response;
+            });
+
+            assertSame(response, kitsuClient.get(KitsuClient.Operation.SEARCH, PATH, ApiResponse.class));
+            assertEquals(List.of("kitsu-call-test"), threads);
+            assertEquals(2, meterRegistry.get("resilience4j.bulkhead.available.concurrent.calls").gauge().value());
+        } finally {
+            callExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testTimedOutCallsHoldTheirPermitUntilTheyEnd() throws Exception {
+        ExecutorService callExecutor = Executors.newCachedThreadPool();
+        CountDownLatch releaseCall = new CountDownLatch(1);
+        try {
+            kitsuClient.setCallExecutor(callExecutor);
+            when(restTemplate.getForObject(anyString(), eq(ApiResponse.class))).thenAnswer(invocation -> {
+                releaseCall.await(5, TimeUnit.SECONDS);
+                return new ApiResponse();
+            });
+
+            assertThrows(KitsuUnavailableException.class, () -> kitsuClient.get(KitsuClient.Operation.FEED, PATH, ApiResponse.class));
+            assertEquals(1, meterRegistry.get("resilience4j.bulkhead.available.concurrent.calls").gauge().value());
+
+            releaseCall.countDown();
+            long deadline = System.currentTimeMillis() + 5000;
+            while (meterRegistry.get("resilience4j.bulkhead.available.concurrent.calls").gauge().value() < 2
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(2, meterRegistry.get("resilience4j.bulkhead.available.concurrent.calls").gauge().value());
+        } finally {
+            releaseCall.countDown();
+            callExecutor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package fr.kitsuapirest.test.service;
+
+import fr.kitsuapirest.event.AnimeCatalogChangedEvent;
+import fr.kitsuapirest.model.Anime;
+import fr.kitsuapirest.model.ImportCheckpoint;
+import fr.kitsuapirest.repository.AnimeRepository;
+import fr.kitsuapirest.repository.ImportCheckpointRepository;
+import fr.kitsuapirest.service.KitsuApiService;
+import fr.kitsuapirest.service.KitsuDeltaSync;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class KitsuDeltaSyncTest {
+
+    private static final Instant WATERMARK = Instant.parse("2023-06-01T00:00:00Z");
+
+    private final KitsuApiService kitsuApiService = mock(KitsuApiService.class);
+    private final AnimeRepository animeRepository = mock(AnimeRepository.class);
+    private final ImportCheckpointRepository checkpointRepository = mock(ImportCheckpointRepository.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final ImportCheckpoint checkpoint = new ImportCheckpoint("kitsu-delta-sync");
+
+    private KitsuDeltaSync deltaSync;
+
+    @BeforeEach
+    void setUp() {
+        deltaSync = new KitsuDeltaSync(kitsuApiService, animeRepository, checkpointRepository, eventPublisher,
+                new SimpleMeterRegistry(), 50);
+        checkpoint.setWatermark(WATERMARK);
+        when(checkpointRepository.findById(anyString())).thenReturn(Optional.of(checkpoint));
+        when(animeRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSyncWritesOnlyChangedAnimes() {
+        Anime finished = anime("1", 1L, "finished", 12, WATERMARK.plusSeconds(60));
+        Anime unchanged = anime("2", 2L, "finished", 24, WATERMARK.plusSeconds(30));
+        Anime older = anime("3", 3L, "finished", 3, WATERMARK.minusSeconds(30));
+        when(kitsuApiService.fetchRecentlyUpdatedPage(0, 20)).thenReturn(List.of(finished, unchanged, older));
+
+        Anime airing = anime("4", 4L, "current", 13, null);
+        when(animeRepository.findKitsuIdsByStatusIn(anyCollection())).thenReturn(List.of("1", "4"));
+        when(kitsuApiService.fetchAnimesByKitsuIds(List.of("4"))).thenReturn(List.of(airing));
+
+        Anime storedFinished = stored(anime("1", 1L, "current", 11, null));
+        Anime storedUnchanged = stored(anime("2", 2L, "finished", 24, null));
+        Anime storedAiring = stored(anime("4", 4L, "current", 13, null));
+        when(animeRepository.findByKitsuIdIn(List.of("1", "2", "4")))
+                .thenReturn(List.of(storedFinished, storedUnchanged, storedAiring));
+
+        assertEquals(1, deltaSync.sync());
+
+        ArgumentCaptor<List<Anime>> saved = ArgumentCaptor.forClass(List.class);
+        verify(animeRepository).saveAll(saved.capture());
+        assertEquals(List.of(storedFinished), saved.getValue());
+        assertEquals("finished", storedFinished.getStatus());
+        assertEquals(12, storedFinished.getEpisodeCount());
+        verify(eventPublisher).publishEvent(any(AnimeCatalogChangedEvent.class));
+        verify(kitsuApiService, never()).fetchRecentlyUpdatedPage(eq(20), anyInt());
+        assertEquals(WATERMARK.plusSeconds(60), checkpoint.getWatermark());
+    }
+
+    @Test
+    void testFirstSyncOnlyRecordsWatermark() {
+        checkpoint.setWatermark(null);
+        when(kitsuApiService.fetchRecentlyUpdatedPage(0, 20))
+                .thenReturn(List.of(anime("1", 1L, "finished", 12, WATERMARK)));
+        when(animeRepository.findKitsuIdsByStatusIn(anyCollection())).thenReturn(new ArrayList<>());
+
+        assertEquals(0, deltaSync.sync());
+
+        verify(animeRepository, never()).saveAll(anyList());
+        assertEquals(WATERMARK, checkpoint.getWatermark());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSyncStoppedByThePageLimitResumesWithoutMovingTheWatermark() {
+        deltaSync = new KitsuDeltaSync(kitsuApiService, animeRepository, checkpointRepository, eventPublisher,
+                new SimpleMeterRegistry(), 2);
+        when(kitsuApiService.fetchRecentlyUpdatedPage(0, 20)).thenReturn(page(1, WATERMARK.plusSeconds(3600)));
+        when(kitsuApiService.fetchRecentlyUpdatedPage(20, 20)).thenReturn(page(21, WATERMARK.plusSeconds(1800)));
+
+        deltaSync.sync();
+
+        assertEquals(WATERMARK, checkpoint.getWatermark());
+        assertEquals(WATERMARK.plusSeconds(3600), checkpoint.getPendingWatermark());
+        assertEquals(40, checkpoint.getNextOffset());
+
+        Anime atWatermark = anime("41", 41L, "finished", 12, WATERMARK);
+        Anime older = anime("42", 42L, "finished", 12, WATERMARK.minusSeconds(60));
+        when(kitsuApiService.fetchRecentlyUpdatedPage(40, 20)).thenReturn(List.of(atWatermark, older));
+
+        deltaSync.sync();
+
+        ArgumentCaptor<List<String>> looked = ArgumentCaptor.forClass(List.class);
+        verify(animeRepository, times(2)).findByKitsuIdIn(looked.capture());
+        assertEquals(List.of("41"), looked.getValue());
+        assertEquals(WATERMARK.plusSeconds(3600), checkpoint.getWatermark());
+        assertNull(checkpoint.getPendingWatermark());
+        assertEquals(0, checkpoint.getNextOffset());
+    }
+
+    @Test
+    void testFailedSyncKeepsTheWatermark() {
+        when(kitsuApiService.fetchRecentlyUpdatedPage(0, 20)).thenReturn(page(1, WATERMARK.plusSeconds(3600)));
+        when(kitsuApiService.fetchRecentlyUpdatedPage(20, 20)).thenThrow(new IllegalStateException("Kitsu is down"));
+
+        deltaSync.sync();
+
+        assertEquals(WATERMARK, checkpoint.getWatermark());
+        assertEquals(20, checkpoint.getNextOffset());
+    }
+
+    private static List<Anime> page(int firstKitsuId, Instant updatedAt) {
+        List<Anime> animes = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            animes.add(anime(String.valueOf(firstKitsuId + i), (long) firstKitsuId + i, "finished", 12,
+                    updatedAt.minusSeconds(i)));
+        }
+        return animes;
+    }
+
+    private static Anime anime(String kitsuId, Long id, String status, Integer episodeCount, Instant updatedAt) {
+        Anime anime = new Anime();
+        anime.setId(id);
+        anime.setKitsuId(kitsuId);
+        anime.setTitle("Anime " + kitsuId);
+        anime.setStatus(status);
+        anime.setEpisodeCount(episodeCount);
+        anime.setKitsuUpdatedAt(updatedAt);
+        return anime;
+    }
+
+    private static Anime stored(Anime anime) {
+        anime.updateDerivedColumns();
+        return anime;
+    }
+}
@@ -0,0 +1,106 @@
+package fr.kitsuapirest.test.service;
+
+import fr.kitsuapirest.ApiResponse.AnimeAttributes;
+import fr.kitsuapirest.ApiResponse.AnimeData;
+import fr.kitsuapirest.ApiResponse.ApiResponse;
+import fr.kitsuapirest.config.KitsuResponseConverter;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.mock.http.MockHttpInputMessage;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KitsuResponseConverterTest {
+
+    private static final String COLLECTION = """
+            {
+              "data": [
+                {
+                  "id": "1",
+                  "type": "anime",
+                  "links": {"self": "https://kitsu.io/api/edge/anime/1"},
+                  "attributes": {
+                    "createdAt": "2013-02-20T16:00:13.609Z",
+                    "updatedAt": "2023-05-14T10:11:12.345Z",
+                    "synopsis": "Space cowboys.",
+                    "titles": {"en": "Cowboy Bebop", "en_jp": "Cowboy Bebop", "ja_jp": "カウボーイビバップ", "en_us": "x"},
+                    "abbreviatedTitles": ["COWBOY BEBOP"],
+                    "averageRating": "82.5",
+                    "ratingFrequencies": {"2": "4013", "3": "0"},
+                    "startDate": "1998-04-03",
+                    "endDate": null,
+                    "subtype": "TV",
+                    "status": "finished",
+                    "posterImage": {"small": "https://media.kitsu.io/1/small.jpg", "original": "https://media.kitsu.io/1/original.jpg",
+                                    "meta": {"dimensions": {"small": {"width": 284, "height": 402}}}},
+                    "coverImage": null,
+                    "episodeCount": 26,
+                    "episodeLength": 25,
+                    "ageRatingGuide": "17+ (violence & profanity)"
+                  },
+                  "relationships": {
+                    "genres": {"links": {"self": "https://kitsu.io/api/edge/anime/1/relationships/genres"}},
+                    "episodes": {"links": {"related": "https://kitsu.io/api/edge/anime/1/episodes"}}
+                  }
+                },
+                {"id": "2", "type": "anime", "attributes": {"titles": {"en_jp": "Cowboy Bebop: Tengoku no Tobira"}}}
+              ],
+              "meta": {"count": 2},
+              "links": {"first": "https://kitsu.io/api/edge/anime?page[limit]=2&page[offset]=0"}
+            }
+            """;
+
+    private final KitsuResponseConverter converter = new KitsuResponseConverter();
+
+    @Test
+    void testOnlyTheUsedFieldsAreRead() throws Exception {
+        ApiResponse response = read(COLLECTION);
+
+        assertEquals(2, response.getData().size());
+        AnimeData first = response.getData().get(0);
+        AnimeAttributes attributes = first.getAttributes();
+        assertEquals("1", first.getId());
+        assertEquals("anime", first.getType());
+        assertEquals("Cowboy Bebop", attributes.getTitles().getEn());
+        assertEquals("カウボーイビバップ", attributes.getTitles().getJa_jp());
+        assertEquals(82.5, attributes.getAverageRating());
+        assertEquals(LocalDate.of(1998, 4, 3), attributes.getStartDate());
+        assertNull(attributes.getEndDate());
+        assertEquals(Instant.parse("2023-05-14T10:11:12.345Z"), attributes.getUpdatedAt());
+        assertEquals("https://media.kitsu.io/1/small.jpg", attributes.getPosterImage().getSmall());
+        assertNull(attributes.getCoverImage());
+        assertEquals(26, attributes.getEpisodeCount());
+        assertEquals("17+ (violence & profanity)", attributes.getAgeRatingGuide());
+        assertEquals("Cowboy Bebop: Tengoku no Tobira", response.getData().get(1).getAttributes().getTitles().getEn_jp());
+    }
+
+    @Test
+    void testSingleResourceIsReadAsAList() throws Exception {
+        ApiResponse response = read("{\"data\": {\"id\": \"7\", \"type\": \"anime\", \"attributes\": {\"status\": \"current\"}}}");
+
+        assertEquals(1, response.getData().size());
+        assertEquals("current", response.getData().get(0).getAttributes().getStatus());
+    }
+
+    @Test
+    void testOnlyApiResponsesAreRead() {
+        assertTrue(converter.canRead(ApiResponse.class, MediaType.parseMediaType("application/vnd.api+json")));
+        assertFalse(converter.canRead(AnimeData[].class, MediaType.APPLICATION_JSON));
+        assertFalse(converter.canWrite(ApiResponse.class, MediaType.APPLICATION_JSON));
+        assertThrows(HttpMessageNotReadableException.class,
+                () -> read("{\"data\": [{\"id\": \"1\", \"attributes\": {\"startDate\": \"soon\"}}]}"));
+    }
+
+    private ApiResponse read(String json) throws Exception {
+        return converter.read(ApiResponse.class, new MockHttpInputMessage(json.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,79 @@
+package fr.kitsuapirest.test.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.kitsuapirest.ApiResponse.AnimeData;
+import fr.kitsuapirest.ApiResponse.ApiResponse;
+import fr.kitsuapirest.config.KitsuResponseConverter;
+import fr.kitsuapirest.stub.KitsuStubServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KitsuStubServerTest {
+
+    private final RestTemplate restTemplate = new RestTemplate();
+
+    private KitsuStubServer stubServer;
+
+    KitsuStubServerTest() {
+        restTemplate.getMessageConverters().add(0, new KitsuResponseConverter());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (stubServer != null) {
+            stubServer.close();
+        }
+    }
+
+    @Test
+    void testCatalogIsPaginated() throws Exception {
+        stubServer = stubServer(0);
+
+        List<AnimeData> firstPage = get("/anime?sort=id&page[limit]=20&page[offset]=0&fields[anime]=titles");
+        List<AnimeData> lastPage = get("/anime?sort=id&page[limit]=20&page[offset]=20&fields[anime]=titles");
+
+        assertEquals(20, firstPage.size());
+        assertEquals(12, lastPage.size());
+        assertTrue(Long.parseLong(firstPage.get(19).getId()) < Long.parseLong(lastPage.get(0).getId()));
+    }
+
+    @Test
+    void testFiltersAndSort() throws Exception {
+        stubServer = stubServer(0);
+
+        assertEquals(List.of("8", "15"), get("/anime?filter[id]=15,8&sort=id").stream().map(AnimeData::getId).toList());
+        assertEquals("Cowboy Bebop", get("/anime?filter[text]=cowboy").get(0).getAttributes().getTitles().getEn());
+
+        List<AnimeData> trending = get("/anime?filter[seasonYear]=2026&filter[season]=fall&page[limit]=9&sort=-averageRating");
+        assertEquals(9, trending.size());
+        assertTrue(trending.get(0).getAttributes().getAverageRating() >= trending.get(8).getAttributes().getAverageRating());
+    }
+
+    @Test
+    void testErrorsAreSimulated() throws Exception {
+        stubServer = stubServer(1);
+
+        HttpServerErrorException exception = assertThrows(HttpServerErrorException.class, () -> get("/anime"));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getStatusCode());
+    }
+
+    private List<AnimeData> get(String path) {
+        String url = "http://localhost:" + stubServer.getPort() + "/api/edge" + path;
+        return restTemplate.getForObject(url, ApiResponse.class).getData();
+    }
+
+    private static KitsuStubServer stubServer(double errorRate) throws Exception {
+        return new KitsuStubServer(new ObjectMapper(), 0, "classpath:kitsu-stub/*.json", 2,
+                KitsuStubServer.LatencyDistribution.FIXED, Duration.ZERO, Duration.ZERO, errorRate, 503);
+    }
+}
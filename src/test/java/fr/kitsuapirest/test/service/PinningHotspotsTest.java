@@ -0,0 +1,49 @@
+package fr.kitsuapirest.test.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the application code has no synchronized methods or blocks, which pin a virtual thread to its carrier
+ * thread while it blocks. Locks from java.util.concurrent must be used instead.
+ * Only our sources are checked. The libraries are not: any pinning inside them, such as a load run within a map's
+ * lock, only shows up in the -Djdk.tracePinnedThreads output of a JDK 21 run of the virtual-threads profile.
+ */
+class PinningHotspotsTest {
+
+    private static final Pattern SYNCHRONIZED = Pattern.compile("\\bsynchronized\\s*(\\(|[\\w<])");
+    private static final Pattern COMMENT = Pattern.compile("^\\s*(//|/\\*|\\*)");
+
+    @Test
+    void testNoSynchronizedCode() throws IOException {
+        List<String> hotspots = new ArrayList<>();
+        for (Path sources : List.of(Paths.get("src/main/java"), Paths.get("src/main/java21"))) {
+            if (!Files.isDirectory(sources)) {
+                continue;
+            }
+            try (Stream<Path> files = Files.walk(sources)) {
+                for (Path file : files.filter(path -> path.toString().endsWith(".java")).toList()) {
+                    List<String> lines = Files.readAllLines(file);
+                    for (int i = 0; i < lines.size(); i++) {
+                        String line = lines.get(i);
+                        if (!COMMENT.matcher(line).find() && SYNCHRONIZED.matcher(line).find()) {
+                            hotspots.add(file + ":" + (i + 1));
+                        }
+                    }
+                }
+            }
+        }
+
+        assertTrue(hotspots.isEmpty(), "synchronized code pins virtual threads: " + hotspots);
+    }
+}
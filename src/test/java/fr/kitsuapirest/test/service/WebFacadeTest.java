@@ -0,0 +1,100 @@
+package fr.kitsuapirest.test.service;
+
+import fr.kitsuapirest.dto.AnimeCard;
+import fr.kitsuapirest.dto.KeysetPage;
+import fr.kitsuapirest.dto.UserChangePwdForm;
+import fr.kitsuapirest.dto.UserRegistrationForm;
+import fr.kitsuapirest.model.Anime;
+import fr.kitsuapirest.model.User;
+import fr.kitsuapirest.service.AnimeService;
+import fr.kitsuapirest.service.UserService;
+import fr.kitsuapirest.service.WebFacade;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.PageImpl;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class WebFacadeTest {
+
+    private final AnimeService animeService = mock(AnimeService.class);
+    private final UserService userService = mock(UserService.class);
+    private final WebFacade webFacade = new WebFacade(animeService, userService);
+
+    @Test
+    void testSearchIgnoresBlankParametersAndReturnsCards() {
+        AnimeCard card = new AnimeCard(1L, "Cowboy Bebop", null, "TV", "finished", LocalDate.of(1998, 4, 3), 26, null);
+        when(animeService.getAnimeCards(Map.of("text", "bebop"))).thenReturn(new PageImpl<>(List.of(card)));
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("text", "bebop");
+        parameters.put("subtype", "");
+
+        assertEquals(List.of(card), webFacade.searchAnimes(parameters));
+    }
+
+    @Test
+    void testSearchWithFullViewAndCursor() {
+        Anime anime = new Anime();
+        when(animeService.scrollAnimes(Map.of("view", "full", "cursor", "abc"))).thenReturn(new KeysetPage<>(List.of(anime), null));
+        when(animeService.scrollAnimeCards(any())).thenThrow(new IllegalArgumentException("Invalid cursor"));
+
+        assertEquals(List.of(anime), webFacade.searchAnimes(Map.of("view", "full", "cursor", "abc")));
+        assertTrue(webFacade.searchAnimes(Map.of("cursor", "bad")).isEmpty());
+    }
+
+    @Test
+    void testSignUpCreatesTheUser() {
+        UserRegistrationForm form = new UserRegistrationForm();
+        form.setFirstname("Spike");
+        form.setLastname("Spiegel");
+        form.setUsername("spike");
+        form.setEmail("spike@bebop.io");
+        form.setPassword("Swordfish2!");
+        when(userService.createUser(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        webFacade.signUp(form);
+
+        ArgumentCaptor<User> user = ArgumentCaptor.forClass(User.class);
+        verify(userService).createUser(user.capture());
+        assertEquals("spike", user.getValue().getUsername());
+        assertEquals("Swordfish2!", user.getValue().getPassword());
+    }
+
+    @Test
+    void testChangePasswordRequiresTheConfirmation() {
+        UserChangePwdForm form = new UserChangePwdForm();
+        form.setPassword("old");
+        form.setNewPassword("new");
+        form.setConfirmPassword("other");
+
+        assertThrows(IllegalArgumentException.class, () -> webFacade.changePassword("spike", form));
+        verify(userService, never()).changePassword(anyInt(), anyString(), anyString());
+
+        form.setConfirmPassword("new");
+        when(userService.getUserIdByUsername("spike")).thenReturn(7);
+        webFacade.changePassword("spike", form);
+        verify(userService).changePassword(7, "old", "new");
+    }
+
+    @Test
+    void testAnonymousUser() {
+        assertNull(webFacade.getAuthenticatedUser(null));
+        verifyNoInteractions(userService);
+    }
+}